@@ -12,6 +12,12 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class ApplicationProperties {
     private String domain;
     private final Keycloak keycloak = new Keycloak();
+    private final BulkImport bulkImport = new BulkImport();
+    private final Cache cache = new Cache();
+    private final FanOut fanOut = new FanOut();
+    private final AuthenticationExecutor authenticationExecutor = new AuthenticationExecutor();
+    private final LoginThrottle loginThrottle = new LoginThrottle();
+    private final AuditEvents auditEvents = new AuditEvents();
 
     public static class Keycloak {
         private final Mobile mobile = new Mobile();
@@ -51,6 +57,359 @@ public class ApplicationProperties {
         }
     }
 
+    public static class BulkImport {
+        private int concurrency = 8;
+
+        private int batchSize = 500;
+
+        private int indexPageSize = 500;
+
+        private int indexThreshold = 1000;
+
+        private int partialImportChunkSize = 1000;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getIndexPageSize() {
+            return indexPageSize;
+        }
+
+        public void setIndexPageSize(int indexPageSize) {
+            this.indexPageSize = indexPageSize;
+        }
+
+        public int getIndexThreshold() {
+            return indexThreshold;
+        }
+
+        public void setIndexThreshold(int indexThreshold) {
+            this.indexThreshold = indexThreshold;
+        }
+
+        public int getPartialImportChunkSize() {
+            return partialImportChunkSize;
+        }
+
+        public void setPartialImportChunkSize(int partialImportChunkSize) {
+            this.partialImportChunkSize = partialImportChunkSize;
+        }
+    }
+
+    public static class FanOut {
+        private int concurrency = 16;
+
+        private long callTimeoutMillis = 5000;
+
+        private int groupMembersPageSize = 500;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public long getCallTimeoutMillis() {
+            return callTimeoutMillis;
+        }
+
+        public void setCallTimeoutMillis(long callTimeoutMillis) {
+            this.callTimeoutMillis = callTimeoutMillis;
+        }
+
+        public int getGroupMembersPageSize() {
+            return groupMembersPageSize;
+        }
+
+        public void setGroupMembersPageSize(int groupMembersPageSize) {
+            this.groupMembersPageSize = groupMembersPageSize;
+        }
+    }
+
+    public static class AuthenticationExecutor {
+        private int poolSize = 32;
+
+        private int queueCapacity = 500;
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public static class LoginThrottle {
+        private int loginLimit = 10;
+
+        private int ipLimit = 100;
+
+        private int windowSeconds = 60;
+
+        private long syncMillis = 1000;
+
+        private int maxKeys = 100000;
+
+        private String trustedProxies = "10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}|192\\.168\\.\\d{1,3}\\.\\d{1,3}|169\\.254\\.\\d{1,3}\\.\\d{1,3}|127\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}|172\\.(1[6-9]|2[0-9]|3[0-1])\\.\\d{1,3}\\.\\d{1,3}|0:0:0:0:0:0:0:1|::1";
+
+        public int getLoginLimit() {
+            return loginLimit;
+        }
+
+        public void setLoginLimit(int loginLimit) {
+            this.loginLimit = loginLimit;
+        }
+
+        public int getIpLimit() {
+            return ipLimit;
+        }
+
+        public void setIpLimit(int ipLimit) {
+            this.ipLimit = ipLimit;
+        }
+
+        public int getWindowSeconds() {
+            return windowSeconds;
+        }
+
+        public void setWindowSeconds(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+        }
+
+        public long getSyncMillis() {
+            return syncMillis;
+        }
+
+        public void setSyncMillis(long syncMillis) {
+            this.syncMillis = syncMillis;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        public String getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(String trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+    }
+
+    public static class AuditEvents {
+        private int queueCapacity = 8192;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        private long blockTimeoutMillis = 100;
+
+        private long flushIntervalMillis = 1000;
+
+        public enum OverflowPolicy {
+            DROP, BLOCK
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public long getBlockTimeoutMillis() {
+            return blockTimeoutMillis;
+        }
+
+        public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+            this.blockTimeoutMillis = blockTimeoutMillis;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+    }
+
+    public static class Cache {
+        private final CacheSettings userIds = new CacheSettings(3600, 10000);
+
+        private final RefreshedCacheSettings groups = new RefreshedCacheSettings(900, 0, 300000);
+
+        private final CacheSettings userGroups = new CacheSettings(600, 50000);
+
+        private final PurgedCacheSettings tokenPermissions = new PurgedCacheSettings(3600, 100000, 60000);
+
+        private final CoalescedCacheSettings refreshResponses = new CoalescedCacheSettings(10, 10000, 5000, 30000);
+
+        private final CacheSettings verifiedTokens = new CacheSettings(3600, 10000);
+
+        private final RefreshedCacheSettings revokedTokens = new RefreshedCacheSettings(86400, 100000, 60000);
+
+        private final PurgedCacheSettings auditors = new PurgedCacheSettings(3600, 10000, 60000);
+
+        public CacheSettings getUserIds() {
+            return userIds;
+        }
+
+        public RefreshedCacheSettings getGroups() {
+            return groups;
+        }
+
+        public CacheSettings getUserGroups() {
+            return userGroups;
+        }
+
+        public PurgedCacheSettings getTokenPermissions() {
+            return tokenPermissions;
+        }
+
+        public CoalescedCacheSettings getRefreshResponses() {
+            return refreshResponses;
+        }
+
+        public CacheSettings getVerifiedTokens() {
+            return verifiedTokens;
+        }
+
+        public RefreshedCacheSettings getRevokedTokens() {
+            return revokedTokens;
+        }
+
+        public PurgedCacheSettings getAuditors() {
+            return auditors;
+        }
+    }
+
+    public static class CacheSettings {
+        private int timeToLiveSeconds;
+
+        private int maxSize;
+
+        public CacheSettings(int timeToLiveSeconds, int maxSize) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+            this.maxSize = maxSize;
+        }
+
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class RefreshedCacheSettings extends CacheSettings {
+        private long refreshMillis;
+
+        public RefreshedCacheSettings(int timeToLiveSeconds, int maxSize, long refreshMillis) {
+            super(timeToLiveSeconds, maxSize);
+            this.refreshMillis = refreshMillis;
+        }
+
+        public long getRefreshMillis() {
+            return refreshMillis;
+        }
+
+        public void setRefreshMillis(long refreshMillis) {
+            this.refreshMillis = refreshMillis;
+        }
+    }
+
+    public static class PurgedCacheSettings extends CacheSettings {
+        private long purgeMillis;
+
+        public PurgedCacheSettings(int timeToLiveSeconds, int maxSize, long purgeMillis) {
+            super(timeToLiveSeconds, maxSize);
+            this.purgeMillis = purgeMillis;
+        }
+
+        public long getPurgeMillis() {
+            return purgeMillis;
+        }
+
+        public void setPurgeMillis(long purgeMillis) {
+            this.purgeMillis = purgeMillis;
+        }
+    }
+
+    public static class CoalescedCacheSettings extends CacheSettings {
+        private long lockWaitMillis;
+
+        private long lockLeaseMillis;
+
+        public CoalescedCacheSettings(int timeToLiveSeconds, int maxSize, long lockWaitMillis, long lockLeaseMillis) {
+            super(timeToLiveSeconds, maxSize);
+            this.lockWaitMillis = lockWaitMillis;
+            this.lockLeaseMillis = lockLeaseMillis;
+        }
+
+        public long getLockWaitMillis() {
+            return lockWaitMillis;
+        }
+
+        public void setLockWaitMillis(long lockWaitMillis) {
+            this.lockWaitMillis = lockWaitMillis;
+        }
+
+        public long getLockLeaseMillis() {
+            return lockLeaseMillis;
+        }
+
+        public void setLockLeaseMillis(long lockLeaseMillis) {
+            this.lockLeaseMillis = lockLeaseMillis;
+        }
+    }
+
     public String getDomain() {
         return domain;
     }
@@ -62,4 +421,28 @@ public class ApplicationProperties {
     public Keycloak getKeycloak() {
         return keycloak;
     }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public FanOut getFanOut() {
+        return fanOut;
+    }
+
+    public AuthenticationExecutor getAuthenticationExecutor() {
+        return authenticationExecutor;
+    }
+
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    public AuditEvents getAuditEvents() {
+        return auditEvents;
+    }
 }
@@ -24,8 +24,11 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final TaskExecutionProperties taskExecutionProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties, ApplicationProperties applicationProperties) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -40,6 +43,49 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Bounded executor running the Keycloak exchanges of the sign-in and refresh endpoints, so servlet threads are not
+     * held during the round trip. Exchanges are rejected once the pool and its queue are full.
+     */
+    @Bean(name = "authenticationExecutor")
+    public Executor authenticationExecutor() {
+        log.debug("Creating Authentication Task Executor");
+        ApplicationProperties.AuthenticationExecutor properties = applicationProperties.getAuthenticationExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getPoolSize());
+        executor.setMaxPoolSize(properties.getPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("accountservice-authentication-");
+        return executor;
+    }
+
+    /**
+     * Executor running the Keycloak creations of the bulk imports, with one thread per creation allowed in flight.
+     * The shared task executor only grows past its core size once its queue is full, so it would run two at most.
+     */
+    @Bean(name = "bulkImportExecutor")
+    public Executor bulkImportExecutor() {
+        log.debug("Creating Bulk Import Task Executor");
+        return fixedExecutor(applicationProperties.getBulkImport().getConcurrency(), "accountservice-bulk-import-");
+    }
+
+    /**
+     * Executor running the Keycloak calls made for many users at once, with one thread per call allowed in flight.
+     */
+    @Bean(name = "fanOutExecutor")
+    public Executor fanOutExecutor() {
+        log.debug("Creating Fan-out Task Executor");
+        return fixedExecutor(applicationProperties.getFanOut().getConcurrency(), "accountservice-fan-out-");
+    }
+
+    private ThreadPoolTaskExecutor fixedExecutor(int poolSize, String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, poolSize));
+        executor.setMaxPoolSize(Math.max(1, poolSize));
+        executor.setThreadNamePrefix(threadNamePrefix);
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -1,5 +1,10 @@
 package com.kairemor.test.config;
 
+import com.kairemor.test.security.jwt.RevokedTokens;
+import com.kairemor.test.service.impl.keycloak.CurrentUserIdResolver;
+import com.kairemor.test.service.impl.keycloak.GroupCatalog;
+import com.kairemor.test.service.impl.keycloak.RefreshTokenCoalescer;
+import com.kairemor.test.service.impl.keycloak.UserGroupsCache;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 
@@ -52,7 +57,7 @@ public class CacheConfiguration {
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         log.debug("Configuring Hazelcast");
         HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("accountservice");
         if (hazelCastInstance != null) {
@@ -77,6 +82,16 @@ public class CacheConfiguration {
         // Full reference is available at: https://docs.hazelcast.org/docs/management-center/3.9/manual/html/Deploying_and_Starting.html
         config.setManagementCenterConfig(initializeDefaultManagementCenterConfig(jHipsterProperties));
         config.getMapConfigs().put("com.kairemor.test.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(CurrentUserIdResolver.USER_IDS_CACHE,
+            initializeBoundedMapConfig(jHipsterProperties, applicationProperties.getCache().getUserIds()));
+        config.getMapConfigs().put(GroupCatalog.GROUP_CATALOG_CACHE,
+            initializeNearCachedMapConfig(jHipsterProperties, applicationProperties.getCache().getGroups()));
+        config.getMapConfigs().put(UserGroupsCache.USER_GROUPS_CACHE,
+            initializeBoundedNearCachedMapConfig(jHipsterProperties, applicationProperties.getCache().getUserGroups()));
+        config.getMapConfigs().put(RefreshTokenCoalescer.REFRESH_RESPONSES_CACHE,
+            initializeBoundedMapConfig(jHipsterProperties, applicationProperties.getCache().getRefreshResponses()));
+        config.getMapConfigs().put(RevokedTokens.REVOKED_TOKENS_CACHE,
+            initializeExpiringMapConfig(jHipsterProperties, applicationProperties.getCache().getRevokedTokens()));
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -124,6 +139,59 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeBoundedMapConfig(JHipsterProperties jHipsterProperties, ApplicationProperties.CacheSettings cacheSettings) {
+        MapConfig mapConfig = new MapConfig();
+        mapConfig.setBackupCount(jHipsterProperties.getCache().getHazelcast().getBackupCount());
+        mapConfig.setTimeToLiveSeconds(cacheSettings.getTimeToLiveSeconds());
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(cacheSettings.getMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
+    /*
+    Entries are never evicted, they only expire: dropping one would lose data, such as a token revocation.
+    */
+    private MapConfig initializeExpiringMapConfig(JHipsterProperties jHipsterProperties, ApplicationProperties.CacheSettings cacheSettings) {
+        MapConfig mapConfig = new MapConfig();
+        mapConfig.setBackupCount(jHipsterProperties.getCache().getHazelcast().getBackupCount());
+        mapConfig.setTimeToLiveSeconds(cacheSettings.getTimeToLiveSeconds());
+        mapConfig.setEvictionPolicy(EvictionPolicy.NONE);
+        return mapConfig;
+    }
+
+    /*
+    Entries are read far more often than written: every node keeps them deserialized in a
+    near cache and is invalidated when they change. They are few and never evicted, a max
+    size per node is enforced per partition and would evict them as soon as written.
+    */
+    private MapConfig initializeNearCachedMapConfig(JHipsterProperties jHipsterProperties, ApplicationProperties.CacheSettings cacheSettings) {
+        MapConfig mapConfig = initializeExpiringMapConfig(jHipsterProperties, cacheSettings);
+        mapConfig.setNearCacheConfig(initializeNearCacheConfig());
+        return mapConfig;
+    }
+
+    /*
+    Many entries, each read far more often than written: the map is bounded per node as usual and
+    every node keeps the entries it reads in a near cache, bounded to the same size.
+    */
+    private MapConfig initializeBoundedNearCachedMapConfig(JHipsterProperties jHipsterProperties, ApplicationProperties.CacheSettings cacheSettings) {
+        MapConfig mapConfig = initializeBoundedMapConfig(jHipsterProperties, cacheSettings);
+        NearCacheConfig nearCacheConfig = initializeNearCacheConfig();
+        nearCacheConfig.setTimeToLiveSeconds(cacheSettings.getTimeToLiveSeconds());
+        int maxSize = cacheSettings.getMaxSize() > 0 ? cacheSettings.getMaxSize() : Integer.MAX_VALUE;
+        nearCacheConfig.setEvictionConfig(new EvictionConfig(maxSize, EvictionConfig.MaxSizePolicy.ENTRY_COUNT, EvictionPolicy.LRU));
+        mapConfig.setNearCacheConfig(nearCacheConfig);
+        return mapConfig;
+    }
+
+    private NearCacheConfig initializeNearCacheConfig() {
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        nearCacheConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        nearCacheConfig.setCacheLocalEntries(true);
+        nearCacheConfig.setInvalidateOnChange(true);
+        return nearCacheConfig;
+    }
+
     @Autowired(required = false)
     public void setGitProperties(GitProperties gitProperties) {
         this.gitProperties = gitProperties;
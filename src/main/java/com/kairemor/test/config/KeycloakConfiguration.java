@@ -0,0 +1,119 @@
+package com.kairemor.test.config;
+
+import com.kairemor.test.properties.AccountServiceProperties;
+import com.kairemor.test.security.jwt.KeycloakJwkSource;
+import com.kairemor.test.security.jwt.RevokedTokens;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class KeycloakConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(KeycloakConfiguration.class);
+
+    private final AccountServiceProperties accountServiceProperties;
+
+    public KeycloakConfiguration(AccountServiceProperties accountServiceProperties) {
+        this.accountServiceProperties = accountServiceProperties;
+    }
+
+    /**
+     * Keycloak admin client shared by every admin call on the configured realm.
+     * The underlying RESTEasy client keeps a bounded connection pool and the service account token
+     * is kept by the client between calls, so no request pays for a new client or a new token.
+     */
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloakAdminClient() {
+        log.debug("Creating Keycloak admin client for realm {}", accountServiceProperties.getRealm());
+        ResteasyClient resteasyClient = new ResteasyClientBuilder()
+            .connectionPoolSize(accountServiceProperties.getAdminConnectionPoolSize())
+            .maxPooledPerRoute(accountServiceProperties.getAdminMaxPerRoute())
+            .connectionTTL(accountServiceProperties.getAdminKeepAliveSeconds(), TimeUnit.SECONDS)
+            .establishConnectionTimeout(accountServiceProperties.getAdminConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .socketTimeout(accountServiceProperties.getAdminReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .connectionCheckoutTimeout(accountServiceProperties.getAdminCheckoutTimeoutMillis(), TimeUnit.MILLISECONDS)
+            .build();
+        return KeycloakBuilder.builder()
+            .serverUrl(accountServiceProperties.getIssuerUrl())
+            .realm(accountServiceProperties.getRealm())
+            .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
+            .clientId(accountServiceProperties.getClientId())
+            .clientSecret(accountServiceProperties.getClientSecret())
+            .resteasyClient(resteasyClient)
+            .build();
+    }
+
+    /**
+     * Pooled HTTP client used for the token endpoint (refresh grants) and by the authorization clients.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient keycloakTokenHttpClient() {
+        log.debug("Creating Keycloak token endpoint HTTP client");
+        PoolingHttpClientConnectionManager connectionManager =
+            new PoolingHttpClientConnectionManager(accountServiceProperties.getTokenKeepAliveSeconds(), TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(accountServiceProperties.getTokenMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(accountServiceProperties.getTokenMaxPerRoute());
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(accountServiceProperties.getTokenConnectTimeoutMillis())
+            .setSocketTimeout(accountServiceProperties.getTokenReadTimeoutMillis())
+            .setConnectionRequestTimeout(accountServiceProperties.getTokenCheckoutTimeoutMillis())
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(accountServiceProperties.getTokenKeepAliveSeconds(), TimeUnit.SECONDS)
+            .build();
+    }
+
+    @Bean
+    public RestTemplate keycloakTokenRestTemplate(CloseableHttpClient keycloakTokenHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(keycloakTokenHttpClient));
+    }
+
+    /**
+     * Decoder of the Keycloak access tokens. RS256 signatures are verified with the realm keys kept by
+     * {@link KeycloakJwkSource}, and the issuer and timestamps are checked locally, so no token costs a call to Keycloak.
+     */
+    @Bean
+    public JwtDecoder keycloakJwtDecoder(KeycloakJwkSource keycloakJwkSource, RevokedTokens revokedTokens) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, keycloakJwkSource));
+        // the claims are validated by the decoder
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        OAuth2TokenValidator<Jwt> notRevoked = jwt -> revokedTokens.isRevoked(jwt.getTokenValue())
+            ? OAuth2TokenValidatorResult.failure(new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, "The token has been revoked", null))
+            : OAuth2TokenValidatorResult.success();
+        jwtDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+            JwtValidators.createDefaultWithIssuer(accountServiceProperties.getResourceServerIssuer()), notRevoked));
+        return jwtDecoder;
+    }
+}
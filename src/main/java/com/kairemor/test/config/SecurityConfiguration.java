@@ -12,6 +12,8 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
 import org.zalando.problem.spring.web.advice.security.SecurityProblemSupport;
 
@@ -21,10 +23,17 @@ import org.zalando.problem.spring.web.advice.security.SecurityProblemSupport;
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private final TokenProvider tokenProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RevokedTokens revokedTokens;
+    private final JwtDecoder keycloakJwtDecoder;
     private final SecurityProblemSupport problemSupport;
 
-    public SecurityConfiguration(TokenProvider tokenProvider, SecurityProblemSupport problemSupport) {
+    public SecurityConfiguration(TokenProvider tokenProvider, VerifiedTokenCache verifiedTokenCache, RevokedTokens revokedTokens,
+                                 JwtDecoder keycloakJwtDecoder, SecurityProblemSupport problemSupport) {
         this.tokenProvider = tokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revokedTokens = revokedTokens;
+        this.keycloakJwtDecoder = keycloakJwtDecoder;
         this.problemSupport = problemSupport;
     }
 
@@ -58,12 +67,26 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .antMatchers("/management/info").permitAll()
             .antMatchers("/management/prometheus").permitAll()
             .antMatchers("/management/**").hasAuthority(AuthoritiesConstants.ADMIN)
+        .and()
+            .oauth2ResourceServer()
+                .bearerTokenResolver(new KeycloakBearerTokenResolver())
+                .authenticationEntryPoint(problemSupport)
+                .jwt()
+                    .decoder(keycloakJwtDecoder)
+                    .jwtAuthenticationConverter(keycloakJwtAuthenticationConverter())
+                .and()
         .and()
             .apply(securityConfigurerAdapter());
         // @formatter:on
     }
 
+    private JwtAuthenticationConverter keycloakJwtAuthenticationConverter() {
+        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
+        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(new KeycloakGrantedAuthoritiesConverter());
+        return jwtAuthenticationConverter;
+    }
+
     private JWTConfigurer securityConfigurerAdapter() {
-        return new JWTConfigurer(tokenProvider);
+        return new JWTConfigurer(tokenProvider, verifiedTokenCache, revokedTokens);
     }
 }
@@ -0,0 +1,13 @@
+package com.kairemor.test.exception;
+
+public class KeycloakUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public KeycloakUnavailableException(String message) {
+        super(message);
+    }
+
+    public KeycloakUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
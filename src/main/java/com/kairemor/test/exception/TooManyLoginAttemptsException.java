@@ -0,0 +1,9 @@
+package com.kairemor.test.exception;
+
+public class TooManyLoginAttemptsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public TooManyLoginAttemptsException(String message) {
+        super(message);
+    }
+}
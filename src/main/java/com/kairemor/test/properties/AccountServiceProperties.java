@@ -18,6 +18,51 @@ public class AccountServiceProperties {
     @Value("${keycloak.realm}")
     private String realm;
 
+    @Value("${account-service.admin-client.connection-pool-size:20}")
+    private int adminConnectionPoolSize;
+
+    @Value("${account-service.admin-client.max-per-route:20}")
+    private int adminMaxPerRoute;
+
+    @Value("${account-service.admin-client.keep-alive-seconds:60}")
+    private long adminKeepAliveSeconds;
+
+    @Value("${account-service.admin-client.connect-timeout-millis:5000}")
+    private long adminConnectTimeoutMillis;
+
+    @Value("${account-service.admin-client.read-timeout-millis:10000}")
+    private long adminReadTimeoutMillis;
+
+    @Value("${account-service.admin-client.checkout-timeout-millis:2000}")
+    private long adminCheckoutTimeoutMillis;
+
+    @Value("${account-service.token-client.max-total:100}")
+    private int tokenMaxTotal;
+
+    @Value("${account-service.token-client.max-per-route:100}")
+    private int tokenMaxPerRoute;
+
+    @Value("${account-service.token-client.keep-alive-seconds:60}")
+    private long tokenKeepAliveSeconds;
+
+    @Value("${account-service.token-client.connect-timeout-millis:3000}")
+    private int tokenConnectTimeoutMillis;
+
+    @Value("${account-service.token-client.read-timeout-millis:5000}")
+    private int tokenReadTimeoutMillis;
+
+    @Value("${account-service.token-client.checkout-timeout-millis:1000}")
+    private int tokenCheckoutTimeoutMillis;
+
+    @Value("${account-service.service-account.refresh-skew-seconds:60}")
+    private long serviceAccountRefreshSkewSeconds;
+
+    @Value("${account-service.resource-server.issuer:}")
+    private String resourceServerIssuer;
+
+    @Value("${account-service.resource-server.jwks-min-refetch-millis:10000}")
+    private long jwksMinRefetchMillis;
+
     public String getClientId() {
         return clientId;
     }
@@ -49,4 +94,139 @@ public class AccountServiceProperties {
     public void setRealm(String realm) {
         this.realm = realm;
     }
+
+    public int getAdminConnectionPoolSize() {
+        return adminConnectionPoolSize;
+    }
+
+    public void setAdminConnectionPoolSize(int adminConnectionPoolSize) {
+        this.adminConnectionPoolSize = adminConnectionPoolSize;
+    }
+
+    public int getAdminMaxPerRoute() {
+        return adminMaxPerRoute;
+    }
+
+    public void setAdminMaxPerRoute(int adminMaxPerRoute) {
+        this.adminMaxPerRoute = adminMaxPerRoute;
+    }
+
+    public long getAdminKeepAliveSeconds() {
+        return adminKeepAliveSeconds;
+    }
+
+    public void setAdminKeepAliveSeconds(long adminKeepAliveSeconds) {
+        this.adminKeepAliveSeconds = adminKeepAliveSeconds;
+    }
+
+    public long getAdminConnectTimeoutMillis() {
+        return adminConnectTimeoutMillis;
+    }
+
+    public void setAdminConnectTimeoutMillis(long adminConnectTimeoutMillis) {
+        this.adminConnectTimeoutMillis = adminConnectTimeoutMillis;
+    }
+
+    public long getAdminReadTimeoutMillis() {
+        return adminReadTimeoutMillis;
+    }
+
+    public void setAdminReadTimeoutMillis(long adminReadTimeoutMillis) {
+        this.adminReadTimeoutMillis = adminReadTimeoutMillis;
+    }
+
+    public long getAdminCheckoutTimeoutMillis() {
+        return adminCheckoutTimeoutMillis;
+    }
+
+    public void setAdminCheckoutTimeoutMillis(long adminCheckoutTimeoutMillis) {
+        this.adminCheckoutTimeoutMillis = adminCheckoutTimeoutMillis;
+    }
+
+    public int getTokenMaxTotal() {
+        return tokenMaxTotal;
+    }
+
+    public void setTokenMaxTotal(int tokenMaxTotal) {
+        this.tokenMaxTotal = tokenMaxTotal;
+    }
+
+    public int getTokenMaxPerRoute() {
+        return tokenMaxPerRoute;
+    }
+
+    public void setTokenMaxPerRoute(int tokenMaxPerRoute) {
+        this.tokenMaxPerRoute = tokenMaxPerRoute;
+    }
+
+    public long getTokenKeepAliveSeconds() {
+        return tokenKeepAliveSeconds;
+    }
+
+    public void setTokenKeepAliveSeconds(long tokenKeepAliveSeconds) {
+        this.tokenKeepAliveSeconds = tokenKeepAliveSeconds;
+    }
+
+    public int getTokenConnectTimeoutMillis() {
+        return tokenConnectTimeoutMillis;
+    }
+
+    public void setTokenConnectTimeoutMillis(int tokenConnectTimeoutMillis) {
+        this.tokenConnectTimeoutMillis = tokenConnectTimeoutMillis;
+    }
+
+    public int getTokenReadTimeoutMillis() {
+        return tokenReadTimeoutMillis;
+    }
+
+    public void setTokenReadTimeoutMillis(int tokenReadTimeoutMillis) {
+        this.tokenReadTimeoutMillis = tokenReadTimeoutMillis;
+    }
+
+    public int getTokenCheckoutTimeoutMillis() {
+        return tokenCheckoutTimeoutMillis;
+    }
+
+    public void setTokenCheckoutTimeoutMillis(int tokenCheckoutTimeoutMillis) {
+        this.tokenCheckoutTimeoutMillis = tokenCheckoutTimeoutMillis;
+    }
+
+    public long getServiceAccountRefreshSkewSeconds() {
+        return serviceAccountRefreshSkewSeconds;
+    }
+
+    public void setServiceAccountRefreshSkewSeconds(long serviceAccountRefreshSkewSeconds) {
+        this.serviceAccountRefreshSkewSeconds = serviceAccountRefreshSkewSeconds;
+    }
+
+    /**
+     * @return the issuer of the Keycloak access tokens, the realm URL unless set explicitly
+     */
+    public String getResourceServerIssuer() {
+        if (resourceServerIssuer == null || resourceServerIssuer.isEmpty()) {
+            return getRealmUrl();
+        }
+        return resourceServerIssuer;
+    }
+
+    public void setResourceServerIssuer(String resourceServerIssuer) {
+        this.resourceServerIssuer = resourceServerIssuer;
+    }
+
+    public long getJwksMinRefetchMillis() {
+        return jwksMinRefetchMillis;
+    }
+
+    public void setJwksMinRefetchMillis(long jwksMinRefetchMillis) {
+        this.jwksMinRefetchMillis = jwksMinRefetchMillis;
+    }
+
+    public String getRealmUrl() {
+        String serverUrl = issuerUrl.endsWith("/") ? issuerUrl.substring(0, issuerUrl.length() - 1) : issuerUrl;
+        return serverUrl + "/realms/" + realm;
+    }
+
+    public String getJwksUrl() {
+        return getRealmUrl() + "/protocol/openid-connect/certs";
+    }
 }
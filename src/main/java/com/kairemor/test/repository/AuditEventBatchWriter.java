@@ -0,0 +1,221 @@
+package com.kairemor.test.repository;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.domain.PersistentAuditEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the audit events in the background, so auditing does not slow down the audited requests.
+ * <p>
+ * Events are queued in a ring buffer of {@code application.audit-events.queue-capacity} events. A single thread
+ * writes them in JDBC batches of {@code hibernate.jdbc.batch_size} rows, every
+ * {@code application.audit-events.flush-interval-millis} or as soon as a batch is full. When the queue is full, new
+ * events are dropped, or with the {@code BLOCK} overflow policy, wait at most
+ * {@code application.audit-events.block-timeout-millis} for room before being dropped.
+ * <p>
+ * The events are inserted with JDBC: their identity keys keep Hibernate from batching the inserts.
+ */
+@Component
+public class AuditEventBatchWriter {
+
+    private static final String INSERT_EVENT =
+        "insert into jhi_persistent_audit_event (principal, event_date, event_type) values (?, ?, ?)";
+
+    private static final String INSERT_EVENT_DATA =
+        "insert into jhi_persistent_audit_evt_data (event_id, name, value) values (?, ?, ?)";
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventBatchWriter.class);
+
+    private final RingBuffer<PersistentAuditEvent> queue;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final ApplicationProperties.AuditEvents.OverflowPolicy overflowPolicy;
+
+    private final long blockTimeoutNanos;
+
+    private final long flushIntervalNanos;
+
+    private final Timer flushTimer;
+
+    private final Counter written;
+
+    private final Counter dropped;
+
+    private final Counter failed;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    public AuditEventBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ApplicationProperties applicationProperties, MeterRegistry meterRegistry,
+                                 @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}") int batchSize) {
+        ApplicationProperties.AuditEvents settings = applicationProperties.getAuditEvents();
+        this.queue = new RingBuffer<>(settings.getQueueCapacity());
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.overflowPolicy = settings.getOverflowPolicy();
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.getBlockTimeoutMillis());
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.getFlushIntervalMillis());
+        Gauge.builder("audit.events.queue", queue, RingBuffer::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.events.flush").register(meterRegistry);
+        this.written = Counter.builder("audit.events.written").register(meterRegistry);
+        this.dropped = Counter.builder("audit.events.dropped").tag("reason", "overflow").register(meterRegistry);
+        this.failed = Counter.builder("audit.events.dropped").tag("reason", "failure").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "accountservice-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * @param event event to write
+     * @return false if the event was dropped because the queue is full
+     */
+    public boolean enqueue(PersistentAuditEvent event) {
+        if (queue.offer(event)) {
+            if (queue.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return true;
+        }
+        if (overflowPolicy == ApplicationProperties.AuditEvents.OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            do {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (queue.offer(event)) {
+                    return true;
+                }
+            } while (System.nanoTime() - deadline < 0);
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void run() {
+        List<PersistentAuditEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            if (running && queue.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            // read before draining, the events queued before the stop are still written
+            boolean stopping = !running;
+            PersistentAuditEvent event;
+            while ((event = queue.poll()) != null) {
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    flush(batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<PersistentAuditEvent> batch) {
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    insert(connection, batch);
+                    return null;
+                })));
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} audit events: {}", batch.size(), e.getMessage());
+            failed.increment(batch.size());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void insert(Connection connection, List<PersistentAuditEvent> batch) throws SQLException {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        long[] ids = new long[batch.size()];
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT, Statement.RETURN_GENERATED_KEYS)) {
+            for (PersistentAuditEvent event : batch) {
+                statement.setString(1, event.getPrincipal());
+                statement.setTimestamp(2, event.getAuditEventDate() != null ? Timestamp.from(event.getAuditEventDate()) : null, utc);
+                statement.setString(3, event.getAuditEventType());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated key for audit event " + i + " of the batch");
+                    }
+                    ids[i] = keys.getLong(1);
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT_DATA)) {
+            int pending = 0;
+            for (int i = 0; i < ids.length; i++) {
+                for (Map.Entry<String, String> entry : batch.get(i).getData().entrySet()) {
+                    statement.setLong(1, ids[i]);
+                    statement.setString(2, entry.getKey());
+                    statement.setString(3, entry.getValue());
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.kairemor.test.repository;
+
+import com.kairemor.test.config.Constants;
+import com.kairemor.test.config.audit.AuditEventConverter;
+import com.kairemor.test.domain.PersistentAuditEvent;
+
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An implementation of Spring Boot's {@link AuditEventRepository}.
+ * <p>
+ * Events are written asynchronously by the {@link AuditEventBatchWriter}, they are found a moment after being added.
+ */
+@Repository
+public class CustomAuditEventRepository implements AuditEventRepository {
+
+    private static final String AUTHORIZATION_FAILURE = "AUTHORIZATION_FAILURE";
+
+    /**
+     * Should be the same as in Liquibase migration.
+     */
+    protected static final int EVENT_DATA_COLUMN_MAX_LENGTH = 255;
+
+    /**
+     * Should be the same as in Liquibase migration, a longer principal would fail the whole batch.
+     */
+    protected static final int PRINCIPAL_COLUMN_MAX_LENGTH = 50;
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final AuditEventConverter auditEventConverter;
+
+    private final AuditEventBatchWriter auditEventBatchWriter;
+
+    public CustomAuditEventRepository(PersistenceAuditEventRepository persistenceAuditEventRepository,
+                                      AuditEventConverter auditEventConverter, AuditEventBatchWriter auditEventBatchWriter) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.auditEventConverter = auditEventConverter;
+        this.auditEventBatchWriter = auditEventBatchWriter;
+    }
+
+    @Override
+    public List<AuditEvent> find(String principal, Instant after, String type) {
+        Iterable<PersistentAuditEvent> persistentAuditEvents =
+            persistenceAuditEventRepository.findByPrincipalAndAuditEventDateAfterAndAuditEventType(principal, after, type);
+        return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
+    }
+
+    @Override
+    public void add(AuditEvent event) {
+        if (!AUTHORIZATION_FAILURE.equals(event.getType()) &&
+            !Constants.ANONYMOUS_USER.equals(event.getPrincipal())) {
+
+            PersistentAuditEvent persistentAuditEvent = new PersistentAuditEvent();
+            persistentAuditEvent.setPrincipal(event.getPrincipal().length() > PRINCIPAL_COLUMN_MAX_LENGTH
+                ? event.getPrincipal().substring(0, PRINCIPAL_COLUMN_MAX_LENGTH) : event.getPrincipal());
+            persistentAuditEvent.setAuditEventType(event.getType());
+            persistentAuditEvent.setAuditEventDate(event.getTimestamp());
+            Map<String, String> eventData = auditEventConverter.convertDataToStrings(event.getData());
+            persistentAuditEvent.setData(truncate(eventData));
+            auditEventBatchWriter.enqueue(persistentAuditEvent);
+        }
+    }
+
+    /**
+     * Truncate event data that might exceed column length.
+     */
+    private static Map<String, String> truncate(Map<String, String> data) {
+        Map<String, String> results = new HashMap<>();
+
+        if (data != null) {
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                String value = entry.getValue();
+                if (value != null && value.length() > EVENT_DATA_COLUMN_MAX_LENGTH) {
+                    value = value.substring(0, EVENT_DATA_COLUMN_MAX_LENGTH);
+                }
+                results.put(entry.getKey(), value);
+            }
+        }
+        return results;
+    }
+}
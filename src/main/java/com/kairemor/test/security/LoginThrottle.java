@@ -0,0 +1,130 @@
+package com.kairemor.test.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.exception.TooManyLoginAttemptsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Limits the sign-in attempts per login and per client IP over a sliding window, so a burst of attempts is rejected
+ * before reaching Keycloak.
+ * <p>
+ * Attempts are counted exactly per login and per address, for at most {@code application.login-throttle.max-keys}
+ * of each. Every {@code application.login-throttle.sync-millis} each node publishes the counts of its keys tried at
+ * least twice in the {@link #LOGIN_ATTEMPTS_CACHE} map and adds the counts published by the other nodes to its own, so
+ * the limits hold across the cluster up to that delay, each node missing at most one attempt per key of the others.
+ * A spray of distinct logins is therefore not published.
+ */
+@Component
+public class LoginThrottle {
+
+    public static final String LOGIN_ATTEMPTS_CACHE = "loginAttempts";
+
+    private static final long PUBLISHED_MIN_COUNT = 2;
+
+    private final Logger log = LoggerFactory.getLogger(LoginThrottle.class);
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final IMap<String, HashMap<String, Long>> published;
+
+    private final SlidingWindowCounter attemptsByLogin;
+
+    private final SlidingWindowCounter attemptsByIp;
+
+    private final int loginLimit;
+
+    private final int ipLimit;
+
+    private final long windowMillis;
+
+    public LoginThrottle(HazelcastInstance hazelcastInstance, ApplicationProperties applicationProperties) {
+        ApplicationProperties.LoginThrottle settings = applicationProperties.getLoginThrottle();
+        this.hazelcastInstance = hazelcastInstance;
+        this.published = hazelcastInstance.getMap(LOGIN_ATTEMPTS_CACHE);
+        this.windowMillis = settings.getWindowSeconds() * 1000L;
+        this.attemptsByLogin = new SlidingWindowCounter(windowMillis, settings.getMaxKeys());
+        this.attemptsByIp = new SlidingWindowCounter(windowMillis, settings.getMaxKeys());
+        this.loginLimit = settings.getLoginLimit();
+        this.ipLimit = settings.getIpLimit();
+    }
+
+    /**
+     * Counts a sign-in attempt.
+     *
+     * @param login    login of the attempt, may be null
+     * @param clientIp address of the client, may be null
+     * @throws TooManyLoginAttemptsException if the login or the client already made too many attempts
+     */
+    public void acquire(String login, String clientIp) {
+        long now = System.currentTimeMillis();
+        String loginKey = login != null ? login.toLowerCase(Locale.ROOT) : null;
+        if (isExceeded(attemptsByLogin, loginKey, loginLimit, now) || isExceeded(attemptsByIp, clientIp, ipLimit, now)) {
+            throw new TooManyLoginAttemptsException("Too many sign-in attempts, please retry later");
+        }
+        if (loginKey != null && loginLimit > 0) {
+            attemptsByLogin.increment(loginKey, now);
+        }
+        if (clientIp != null && ipLimit > 0) {
+            attemptsByIp.increment(clientIp, now);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.login-throttle.sync-millis:1000}")
+    public void synchronize() {
+        if (loginLimit <= 0 && ipLimit <= 0) {
+            return;
+        }
+        long epoch = attemptsByLogin.windowOf(System.currentTimeMillis());
+        try {
+            String localMember = hazelcastInstance.getCluster().getLocalMember().getUuid();
+            Set<String> otherMembers = hazelcastInstance.getCluster().getMembers().stream()
+                .map(Member::getUuid)
+                .filter(uuid -> !uuid.equals(localMember))
+                .collect(Collectors.toSet());
+            synchronize("login", attemptsByLogin, localMember, otherMembers, epoch);
+            synchronize("ip", attemptsByIp, localMember, otherMembers, epoch);
+        } catch (RuntimeException e) {
+            log.debug("Could not synchronize the sign-in attempts with the cluster: {}", e.getMessage());
+        }
+    }
+
+    private void synchronize(String name, SlidingWindowCounter counter, String localMember, Set<String> otherMembers, long epoch) {
+        for (long window = epoch - 1; window <= epoch; window++) {
+            published.set(key(name, localMember, window), new HashMap<>(counter.snapshot(window, PUBLISHED_MIN_COUNT)),
+                2 * windowMillis, TimeUnit.MILLISECONDS);
+            if (otherMembers.isEmpty()) {
+                continue;
+            }
+            final long publishedWindow = window;
+            Map<String, HashMap<String, Long>> counts = published.getAll(otherMembers.stream()
+                .map(member -> key(name, member, publishedWindow))
+                .collect(Collectors.toSet()));
+            Map<String, Long> totals = new HashMap<>();
+            for (Map<String, Long> memberCounts : counts.values()) {
+                memberCounts.forEach((key, count) -> totals.merge(key, count, Long::sum));
+            }
+            counter.setRemote(window, totals);
+        }
+    }
+
+    private static boolean isExceeded(SlidingWindowCounter counter, String key, int limit, long now) {
+        return key != null && limit > 0 && counter.estimate(key, now) >= limit;
+    }
+
+    private static String key(String name, String member, long window) {
+        return name + ':' + member + ':' + window;
+    }
+}
@@ -0,0 +1,141 @@
+package com.kairemor.test.security;
+
+import com.kairemor.test.service.util.LruCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of events per key over a sliding window.
+ * <p>
+ * Each key is counted exactly, in its own {@link LongAdder}, so events of other keys never add up to its count. At
+ * most {@code maxKeys} keys are kept, the least recently used key being forgotten first. The window slides over two
+ * fixed windows, the previous one being weighted by the part of it still in the sliding window.
+ * <p>
+ * Counts of the other nodes of the cluster are added as remote counts, see {@link #setRemote(long, Map)}.
+ */
+class SlidingWindowCounter {
+
+    private final long windowMillis;
+
+    private final LruCache<String, KeyCounts> countsByKey;
+
+    private final AtomicReferenceArray<RemoteCounts> remoteCounts = new AtomicReferenceArray<>(
+        new RemoteCounts[] { RemoteCounts.NONE, RemoteCounts.NONE });
+
+    SlidingWindowCounter(long windowMillis, int maxKeys) {
+        this.windowMillis = windowMillis;
+        this.countsByKey = new LruCache<>(maxKeys);
+    }
+
+    /**
+     * @param key a key
+     * @param now current time in milliseconds
+     * @return the number of events of the key over the sliding window ending now
+     */
+    long estimate(String key, long now) {
+        long epoch = now / windowMillis;
+        double previousWeight = 1 - (double) (now % windowMillis) / windowMillis;
+        long current = remoteCount(key, epoch);
+        long previous = remoteCount(key, epoch - 1);
+        KeyCounts counts = countsByKey.get(key);
+        if (counts != null) {
+            current += counts.count(epoch);
+            previous += counts.count(epoch - 1);
+        }
+        return current + Math.round(previous * previousWeight);
+    }
+
+    /**
+     * @param key a key
+     * @param now current time in milliseconds
+     */
+    void increment(String key, long now) {
+        countsByKey.computeIfAbsent(key, k -> new KeyCounts()).increment(now / windowMillis);
+    }
+
+    /**
+     * @param epoch    a window, in number of windows since the epoch
+     * @param minCount smallest count of the keys to return
+     * @return the counts of this node in the window, by key, for the keys counted at least {@code minCount} times
+     */
+    Map<String, Long> snapshot(long epoch, long minCount) {
+        Map<String, Long> snapshot = new HashMap<>();
+        countsByKey.forEach((key, counts) -> {
+            long count = counts.count(epoch);
+            if (count >= minCount) {
+                snapshot.put(key, count);
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * @param epoch  a window, in number of windows since the epoch
+     * @param counts counts of the other nodes in the window, by key
+     */
+    void setRemote(long epoch, Map<String, Long> counts) {
+        int index = index(epoch);
+        RemoteCounts known = remoteCounts.get(index);
+        if (known.epoch <= epoch) {
+            remoteCounts.compareAndSet(index, known, new RemoteCounts(epoch, counts));
+        }
+    }
+
+    long windowOf(long now) {
+        return now / windowMillis;
+    }
+
+    private long remoteCount(String key, long epoch) {
+        RemoteCounts remote = remoteCounts.get(index(epoch));
+        return remote.epoch == epoch ? remote.counts.getOrDefault(key, 0L) : 0;
+    }
+
+    private static int index(long epoch) {
+        return (int) (epoch & 1);
+    }
+
+    private static final class KeyCounts {
+
+        private final AtomicLongArray epochs = new AtomicLongArray(new long[] { Long.MIN_VALUE, Long.MIN_VALUE });
+
+        private final LongAdder[] counts = { new LongAdder(), new LongAdder() };
+
+        private void increment(long epoch) {
+            int index = index(epoch);
+            if (epochs.get(index) != epoch) {
+                synchronized (this) {
+                    if (epochs.get(index) < epoch) {
+                        // increments racing with the reset are lost, a few attempts at the turn of a window
+                        counts[index].reset();
+                        epochs.set(index, epoch);
+                    }
+                }
+            }
+            counts[index].increment();
+        }
+
+        private long count(long epoch) {
+            int index = index(epoch);
+            return epochs.get(index) == epoch ? counts[index].sum() : 0;
+        }
+    }
+
+    private static final class RemoteCounts {
+
+        private static final RemoteCounts NONE = new RemoteCounts(Long.MIN_VALUE, Collections.emptyMap());
+
+        private final long epoch;
+
+        private final Map<String, Long> counts;
+
+        private RemoteCounts(long epoch, Map<String, Long> counts) {
+            this.epoch = epoch;
+            this.counts = counts;
+        }
+    }
+}
@@ -1,91 +1,152 @@
 package com.kairemor.test.security;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kairemor.test.config.ApplicationProperties;
 import com.kairemor.test.domain.User;
 import com.kairemor.test.repository.UserRepository;
+import com.kairemor.test.service.util.LruCache;
 
-import java.util.Base64;
 import java.util.Optional;
-
-import javax.servlet.http.HttpServletRequest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.AuditorAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * Implementation of {@link AuditorAware} based on Spring Security.
+ * <p>
+ * The auditor is the user of the Keycloak access token authenticated by the security filter chain. It is resolved
+ * once per request, and kept by subject for {@code application.cache.auditors.time-to-live-seconds} so audited writes
+ * do not read the user again. The least recently used subject is evicted once
+ * {@code application.cache.auditors.max-size} are kept. A user seen for the first time is saved on the task executor,
+ * outside of the flush running the auditing callback.
  */
 @Service
 public class SpringSecurityAuditorAware implements AuditorAware<User> {
 
-    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String AUDITOR_ATTRIBUTE = SpringSecurityAuditorAware.class.getName() + ".AUDITOR";
 
     private final Logger log = LoggerFactory.getLogger(SpringSecurityAuditorAware.class);
 
-    @Autowired
-    private UserRepository userRepository;
+    private final UserRepository userRepository;
 
-    @Override
-    public Optional<User> getCurrentAuditor() {
-        User user = getUserFromToken(getTokenFromHttpRequest());
-        return Optional.ofNullable(user);
+    private final Executor taskExecutor;
+
+    private final LruCache<String, CachedAuditor> auditorsBySubject;
+
+    private final Set<String> provisioning = ConcurrentHashMap.newKeySet();
+
+    private final long timeToLiveMillis;
+
+    public SpringSecurityAuditorAware(UserRepository userRepository, @Qualifier("taskExecutor") Executor taskExecutor,
+                                      ApplicationProperties applicationProperties) {
+        this.userRepository = userRepository;
+        this.taskExecutor = taskExecutor;
+        ApplicationProperties.CacheSettings settings = applicationProperties.getCache().getAuditors();
+        this.timeToLiveMillis = settings.getTimeToLiveSeconds() * 1000L;
+        this.auditorsBySubject = new LruCache<>(settings.getMaxSize());
     }
 
-    private String getTokenFromHttpRequest(){
+    @Override
+    public Optional<User> getCurrentAuditor() {
         RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
-        if (requestAttributes instanceof ServletRequestAttributes) {
-            HttpServletRequest request = ((ServletRequestAttributes)requestAttributes).getRequest();
-            return request.getHeader(AUTHORIZATION_HEADER);
+        if (requestAttributes != null) {
+            Object auditor = requestAttributes.getAttribute(AUDITOR_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (auditor instanceof User) {
+                return Optional.of((User) auditor);
+            }
+        }
+        Optional<User> auditor = resolveAuditor(SecurityContextHolder.getContext().getAuthentication());
+        if (requestAttributes != null) {
+            auditor.ifPresent(user -> requestAttributes.setAttribute(AUDITOR_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST));
         }
-        log.info("Not called in the context of an HTTP request");
-        return null;
+        return auditor;
     }
 
-    private User getUserFromToken(String token) {
-        User user = null;
+    private Optional<User> resolveAuditor(Authentication authentication) {
+        if (!(authentication instanceof JwtAuthenticationToken)) {
+            return Optional.empty();
+        }
+        Jwt jwt = ((JwtAuthenticationToken) authentication).getToken();
+        String subject = jwt.getSubject();
+        if (subject == null) {
+            return Optional.empty();
+        }
+        CachedAuditor cached = auditorsBySubject.get(subject);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return Optional.of(cached.user);
+        }
+        if (jwt.getClaimAsString("email") == null) {
+            log.error("email Field missing on token, cannot save user information.");
+            return Optional.empty();
+        }
+        Optional<User> storedUser = userRepository.findById(subject);
+        if (storedUser.isPresent()) {
+            remember(subject, storedUser.get());
+            return storedUser;
+        }
+        User user = new User();
+        user.setFirstName(jwt.getClaimAsString("given_name"));
+        user.setLastName(jwt.getClaimAsString("family_name"));
+        user.setLogin(jwt.getClaimAsString("email"));
+        user.setId(subject);
+        provision(user);
+        return Optional.of(user);
+    }
 
-        if (token == null) {
-            return user;
+    private void provision(User user) {
+        if (!provisioning.add(user.getId())) {
+            return;
         }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    remember(user.getId(), userRepository.save(user));
+                } catch (DataAccessException e) {
+                    // most likely saved meanwhile by another request or node, it is read again next time
+                    log.debug("Could not save user {}: {}", user.getId(), e.getMessage());
+                } finally {
+                    provisioning.remove(user.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            provisioning.remove(user.getId());
+            log.warn("Could not schedule the creation of user {}: {}", user.getId(), e.getMessage());
+        }
+    }
 
-        String jwtToken = token.replaceFirst("Bearer ", "");
-        String[] splitString = jwtToken.split("\\.");
-        String base64EncodedBody = splitString[1];
-        Base64.Decoder decoder = Base64.getDecoder();
-        String body = new String(decoder.decode(base64EncodedBody));
+    private void remember(String subject, User user) {
+        auditorsBySubject.put(subject, new CachedAuditor(user, System.currentTimeMillis() + timeToLiveMillis));
+    }
 
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonNode = mapper.readTree(body);
-            String openId = jsonNode.get("sub").asText();
+    @Scheduled(fixedDelayString = "${application.cache.auditors.purge-millis:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        auditorsBySubject.removeIf(auditor -> auditor.expiresAt <= now);
+    }
 
-            if (jsonNode.get("email") == null) {
-              log.error("email Field missing on token, cannot save user information.");
-              return user;
-            }
+    private static final class CachedAuditor {
 
-            Optional<User> optionalUser =  userRepository.findById(openId);
-            if(optionalUser.isPresent()){
-                  return optionalUser.get();
-            }
-            user = new User();
-            user.setFirstName(jsonNode.get("given_name") != null ? jsonNode.get("given_name").asText() : null);
-            user.setLastName(jsonNode.get("family_name") != null ? jsonNode.get("family_name").asText() : null);
-            user.setLogin(jsonNode.get("email").asText());
-            user.setId(openId);
-            userRepository.save(user);
-            return user;
-        } catch (JsonProcessingException e) {
-            log.error("Error when parsing token as json");
+        private final User user;
+
+        private final long expiresAt;
+
+        private CachedAuditor(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
         }
-        return user;
     }
 }
@@ -9,13 +9,19 @@ public class JWTConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilt
 
     private final TokenProvider tokenProvider;
 
-    public JWTConfigurer(TokenProvider tokenProvider) {
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final RevokedTokens revokedTokens;
+
+    public JWTConfigurer(TokenProvider tokenProvider, VerifiedTokenCache verifiedTokenCache, RevokedTokens revokedTokens) {
         this.tokenProvider = tokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revokedTokens = revokedTokens;
     }
 
     @Override
     public void configure(HttpSecurity http) {
-        JWTFilter customFilter = new JWTFilter(tokenProvider);
+        JWTFilter customFilter = new JWTFilter(tokenProvider, verifiedTokenCache, revokedTokens);
         http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
     }
 }
@@ -11,6 +11,7 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Filters incoming requests and installs a Spring Security principal if a header corresponding to a valid user is
@@ -22,8 +23,18 @@ public class JWTFilter extends GenericFilterBean {
 
     private final TokenProvider tokenProvider;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final RevokedTokens revokedTokens;
+
     public JWTFilter(TokenProvider tokenProvider) {
+        this(tokenProvider, null, null);
+    }
+
+    public JWTFilter(TokenProvider tokenProvider, VerifiedTokenCache verifiedTokenCache, RevokedTokens revokedTokens) {
         this.tokenProvider = tokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revokedTokens = revokedTokens;
     }
 
     @Override
@@ -31,13 +42,41 @@ public class JWTFilter extends GenericFilterBean {
         throws IOException, ServletException {
         HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
         String jwt = resolveToken(httpServletRequest);
-        if (StringUtils.hasText(jwt) && this.tokenProvider.validateToken(jwt)) {
-            Authentication authentication = this.tokenProvider.getAuthentication(jwt);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        // Keycloak access tokens are left to the resource server filter
+        if (StringUtils.hasText(jwt) && TokenProvider.isHmacSigned(jwt) && !isRevoked(jwt)) {
+            Authentication authentication = authenticate(jwt);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
         filterChain.doFilter(servletRequest, servletResponse);
     }
 
+    private boolean isRevoked(String jwt) {
+        if (revokedTokens == null || !revokedTokens.isRevoked(jwt)) {
+            return false;
+        }
+        if (verifiedTokenCache != null) {
+            verifiedTokenCache.evict(jwt);
+        }
+        return true;
+    }
+
+    private Authentication authenticate(String jwt) {
+        if (verifiedTokenCache == null || !verifiedTokenCache.isEnabled()) {
+            return this.tokenProvider.authenticate(jwt).orElse(null);
+        }
+        Authentication authentication = verifiedTokenCache.get(jwt);
+        if (authentication == null) {
+            Optional<TokenProvider.VerifiedToken> verifiedToken = this.tokenProvider.verify(jwt);
+            if (verifiedToken.isPresent()) {
+                verifiedTokenCache.put(jwt, verifiedToken.get());
+                authentication = verifiedToken.get().getAuthentication();
+            }
+        }
+        return authentication;
+    }
+
     private String resolveToken(HttpServletRequest request) {
         String bearerToken = request.getHeader(AUTHORIZATION_HEADER);
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
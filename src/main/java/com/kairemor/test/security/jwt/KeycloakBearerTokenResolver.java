@@ -0,0 +1,35 @@
+package com.kairemor.test.security.jwt;
+
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the bearer tokens issued by Keycloak, leaving the tokens signed by {@link TokenProvider} to {@link JWTFilter}.
+ * <p>
+ * No token is resolved on the sign-in and refresh endpoints: a client calls them precisely because its access token
+ * expired, which must not be rejected with a 401 before the new tokens are issued.
+ */
+public class KeycloakBearerTokenResolver implements BearerTokenResolver {
+
+    private static final RequestMatcher CREDENTIALS_ENDPOINTS = new OrRequestMatcher(
+        new AntPathRequestMatcher("/api/signin"),
+        new AntPathRequestMatcher("/api/refresh-token"),
+        new AntPathRequestMatcher("/api/mobile/refresh-token")
+    );
+
+    private final BearerTokenResolver delegate = new DefaultBearerTokenResolver();
+
+    @Override
+    public String resolve(HttpServletRequest request) {
+        if (CREDENTIALS_ENDPOINTS.matches(request)) {
+            return null;
+        }
+        String token = delegate.resolve(request);
+        return token != null && !TokenProvider.isHmacSigned(token) ? token : null;
+    }
+}
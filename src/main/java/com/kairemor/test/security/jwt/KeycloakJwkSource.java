@@ -0,0 +1,130 @@
+package com.kairemor.test.security.jwt;
+
+import com.kairemor.test.properties.AccountServiceProperties;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Public keys of the Keycloak realm, used to verify the Keycloak access tokens locally.
+ * <p>
+ * The keys are fetched from the realm JWKS endpoint, kept in memory by key id, and fetched again on a schedule
+ * ({@code account-service.resource-server.jwks-refresh-millis}) and when a token is signed with an unknown key,
+ * at most once every {@code account-service.resource-server.jwks-min-refetch-millis}.
+ */
+@Component
+public class KeycloakJwkSource implements JWKSource<SecurityContext> {
+
+    private final Logger log = LoggerFactory.getLogger(KeycloakJwkSource.class);
+
+    private final RestTemplate restTemplate;
+
+    private final String jwksUrl;
+
+    private final long minRefetchMillis;
+
+    private final Object fetchLock = new Object();
+
+    private volatile Keys keys = new Keys(new JWKSet());
+
+    private long lastFetch;
+
+    public KeycloakJwkSource(@Qualifier("keycloakTokenRestTemplate") RestTemplate restTemplate, AccountServiceProperties accountServiceProperties) {
+        this.restTemplate = restTemplate;
+        this.jwksUrl = accountServiceProperties.getJwksUrl();
+        this.minRefetchMillis = accountServiceProperties.getJwksMinRefetchMillis();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        Keys current = keys;
+        List<JWK> selected = current.select(jwkSelector);
+        if (!selected.isEmpty()) {
+            return selected;
+        }
+        try {
+            return refetch(current).select(jwkSelector);
+        } catch (RuntimeException e) {
+            throw new KeySourceException("Could not fetch the realm keys: " + e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${account-service.resource-server.jwks-refresh-millis:300000}")
+    public void refresh() {
+        try {
+            synchronized (fetchLock) {
+                fetch();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the realm keys: {}", e.getMessage());
+        }
+    }
+
+    private Keys refetch(Keys seen) {
+        synchronized (fetchLock) {
+            if (keys != seen) {
+                // fetched by another request meanwhile
+                return keys;
+            }
+            if (System.currentTimeMillis() - lastFetch < minRefetchMillis) {
+                return keys;
+            }
+            log.debug("Unknown key, fetching the realm keys again");
+            return fetch();
+        }
+    }
+
+    private Keys fetch() {
+        lastFetch = System.currentTimeMillis();
+        String jwks = restTemplate.getForObject(jwksUrl, String.class);
+        try {
+            keys = new Keys(JWKSet.parse(jwks));
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid realm keys", e);
+        }
+        log.debug("Fetched {} realm keys", keys.jwkSet.getKeys().size());
+        return keys;
+    }
+
+    private static final class Keys {
+
+        private final JWKSet jwkSet;
+
+        private final Map<String, JWK> byKeyId = new HashMap<>();
+
+        private Keys(JWKSet jwkSet) {
+            this.jwkSet = jwkSet;
+            for (JWK jwk : jwkSet.getKeys()) {
+                if (jwk.getKeyID() != null) {
+                    byKeyId.put(jwk.getKeyID(), jwk);
+                }
+            }
+        }
+
+        private List<JWK> select(JWKSelector jwkSelector) {
+            Set<String> keyIds = jwkSelector.getMatcher().getKeyIDs();
+            if (keyIds != null && keyIds.size() == 1) {
+                JWK jwk = byKeyId.get(keyIds.iterator().next());
+                return jwk != null && jwkSelector.getMatcher().matches(jwk)
+                    ? Collections.singletonList(jwk) : Collections.emptyList();
+            }
+            return jwkSelector.select(jwkSet);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kairemor.test.security.jwt;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.kairemor.test.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AbstractOAuth2Token;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens revoked before their expiration, such as the access token of a user who logged out.
+ * <p>
+ * Revocations are kept cluster wide in the {@link #REVOKED_TOKENS_CACHE} map until the token expires, at most
+ * {@code application.cache.revoked-tokens.time-to-live-seconds}. Every node
+ * also keeps a Bloom filter of the revoked tokens, filled by the entry events of the map, so a token that was not
+ * revoked, the common case, is checked in memory. Only the tokens the filter might contain are looked up in the map.
+ * <p>
+ * The filter is rebuilt from the map every {@code application.cache.revoked-tokens.refresh-millis} to drop the
+ * expired tokens. The map never evicts a revocation: {@code application.cache.revoked-tokens.max-size} only sizes the
+ * filter, and a warning is logged when more tokens are revoked.
+ */
+@Component
+public class RevokedTokens {
+
+    public static final String REVOKED_TOKENS_CACHE = "revokedTokens";
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private final Logger log = LoggerFactory.getLogger(RevokedTokens.class);
+
+    private final IMap<String, Long> revoked;
+
+    private final TokenProvider tokenProvider;
+
+    private final int expectedSize;
+
+    private final long maxTimeToLiveMillis;
+
+    private volatile BloomFilter filter;
+
+    /**
+     * Filter being rebuilt, it also gets the tokens revoked during the rebuild.
+     */
+    private volatile BloomFilter nextFilter;
+
+    public RevokedTokens(HazelcastInstance hazelcastInstance, TokenProvider tokenProvider, ApplicationProperties applicationProperties) {
+        this.revoked = hazelcastInstance.getMap(REVOKED_TOKENS_CACHE);
+        this.tokenProvider = tokenProvider;
+        ApplicationProperties.RefreshedCacheSettings settings = applicationProperties.getCache().getRevokedTokens();
+        this.expectedSize = settings.getMaxSize();
+        this.maxTimeToLiveMillis = settings.getTimeToLiveSeconds() * 1000L;
+        this.filter = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+        this.revoked.addEntryListener((EntryAddedListener<String, Long>) event -> remember(event.getKey()), false);
+        rebuildFilter();
+    }
+
+    /**
+     * @param token a token
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(String token) {
+        String key = key(token);
+        return filter.mightContain(key) && revoked.containsKey(key);
+    }
+
+    /**
+     * Revokes the token of an authentication until it expires.
+     *
+     * @param authentication an authentication made from a token
+     */
+    public void revoke(Authentication authentication) {
+        Object credentials = authentication.getCredentials();
+        if (credentials instanceof AbstractOAuth2Token) {
+            AbstractOAuth2Token token = (AbstractOAuth2Token) credentials;
+            Instant expiresAt = token.getExpiresAt();
+            revoke(token.getTokenValue(), expiresAt != null ? expiresAt.toEpochMilli() : Long.MAX_VALUE);
+        } else if (credentials instanceof String) {
+            String token = (String) credentials;
+            tokenProvider.verify(token).ifPresent(verifiedToken -> revoke(token, verifiedToken.getExpiresAt()));
+        }
+    }
+
+    private void revoke(String token, long expiresAt) {
+        long timeToLiveMillis = Math.min(expiresAt - System.currentTimeMillis(), maxTimeToLiveMillis);
+        if (timeToLiveMillis <= 0) {
+            return;
+        }
+        String key = key(token);
+        remember(key);
+        revoked.set(key, expiresAt, timeToLiveMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${application.cache.revoked-tokens.refresh-millis:60000}")
+    public void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+        nextFilter = rebuilt;
+        try {
+            Set<String> keys = revoked.keySet();
+            keys.forEach(rebuilt::add);
+            filter = rebuilt;
+            if (keys.size() > expectedSize) {
+                log.warn("{} revoked tokens, more than the {} the filter is sized for: raise application.cache.revoked-tokens.max-size",
+                    keys.size(), expectedSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the filter of the revoked tokens: {}", e.getMessage());
+        } finally {
+            nextFilter = null;
+        }
+    }
+
+    private void remember(String key) {
+        // read before the current filter, a rebuild starting after this read sees the key in the map
+        BloomFilter next = nextFilter;
+        filter.add(key);
+        if (next != null) {
+            next.add(key);
+        }
+    }
+
+    private static String key(String token) {
+        // the signature is already a digest of the whole token
+        int signatureStart = token.lastIndexOf('.');
+        return signatureStart >= 0 ? token.substring(signatureStart + 1) : token;
+    }
+}
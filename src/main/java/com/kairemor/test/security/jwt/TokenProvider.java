@@ -1,8 +1,10 @@
 package com.kairemor.test.security.jwt;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
@@ -16,6 +18,10 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
 import io.github.jhipster.config.JHipsterProperties;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -28,8 +34,19 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    private static final int MAX_AUTHORITY_SETS = 1000;
+
+    private static final ObjectReader HEADER_READER = new ObjectMapper().reader();
+
     private Key key;
 
+    private JwtParser jwtParser;
+
+    /**
+     * Parsed authorities by value of the {@code auth} claim, the same few combinations are found in most tokens.
+     */
+    private final Map<String, List<GrantedAuthority>> authoritiesByClaim = new ConcurrentHashMap<>();
+
     private long tokenValidityInMilliseconds;
 
     private long tokenValidityInMillisecondsForRememberMe;
@@ -53,6 +70,7 @@ public class TokenProvider {
             keyBytes = Decoders.BASE64.decode(jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret());
         }
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
         this.tokenValidityInMilliseconds =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
@@ -82,30 +100,105 @@ public class TokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-            .setSigningKey(key)
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+        return getAuthentication(token, jwtParser.parseClaimsJws(token).getBody());
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    /**
+     * Tell the tokens signed with a shared secret, such as the ones created here, from the Keycloak access tokens,
+     * without verifying them.
+     *
+     * @param token a JWT.
+     * @return true if the {@code alg} member of the header of the token names an HMAC algorithm.
+     */
+    public static boolean isHmacSigned(String token) {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            return false;
+        }
+        try {
+            JsonNode header = HEADER_READER.readTree(Base64.getUrlDecoder().decode(token.substring(0, headerEnd)));
+            return header != null && header.path("alg").asText("").startsWith("HS");
+        } catch (IllegalArgumentException | IOException e) {
+            return false;
+        }
     }
 
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken).isPresent();
+    }
+
+    /**
+     * Validate the token and build its authentication, verifying the signature once.
+     *
+     * @param authToken the token to validate.
+     * @return the authentication of the token, empty if the token is not valid.
+     */
+    public Optional<Authentication> authenticate(String authToken) {
+        return verify(authToken).map(VerifiedToken::getAuthentication);
+    }
+
+    /**
+     * Validate the token and build its authentication, verifying the signature once.
+     *
+     * @param authToken the token to validate.
+     * @return the authentication and the expiration of the token, empty if the token is not valid.
+     */
+    public Optional<VerifiedToken> verify(String authToken) {
+        return parseClaims(authToken).map(claims -> new VerifiedToken(getAuthentication(authToken, claims),
+            claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE));
+    }
+
+    private Optional<Claims> parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            return Optional.of(jwtParser.parseClaimsJws(authToken).getBody());
         } catch (JwtException | IllegalArgumentException e) {
             log.info("Invalid JWT token.");
             log.trace("Invalid JWT token trace.", e);
         }
-        return false;
+        return Optional.empty();
+    }
+
+    private Authentication getAuthentication(String token, Claims claims) {
+        List<GrantedAuthority> authorities = getAuthorities(claims.get(AUTHORITIES_KEY).toString());
+
+        User principal = new User(claims.getSubject(), "", authorities);
+
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+
+    private List<GrantedAuthority> getAuthorities(String claim) {
+        List<GrantedAuthority> authorities = authoritiesByClaim.get(claim);
+        if (authorities == null) {
+            authorities = Collections.unmodifiableList(Arrays.stream(claim.split(","))
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList()));
+            if (authoritiesByClaim.size() < MAX_AUTHORITY_SETS) {
+                authoritiesByClaim.put(claim, authorities);
+            }
+        }
+        return authorities;
+    }
+
+    public static final class VerifiedToken {
+
+        private final Authentication authentication;
+
+        private final long expiresAt;
+
+        private VerifiedToken(Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+
+        public Authentication getAuthentication() {
+            return authentication;
+        }
+
+        /**
+         * @return the expiration of the token, in milliseconds since the epoch.
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
     }
 }
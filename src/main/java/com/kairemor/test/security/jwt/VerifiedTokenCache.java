@@ -0,0 +1,101 @@
+package com.kairemor.test.security.jwt;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.service.util.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authentications of the tokens already verified by this node, kept until the token expires so the signature of a
+ * token is verified once instead of on every request.
+ * <p>
+ * The cache holds at most {@code application.cache.verified-tokens.max-size} tokens, 0 disables it, and an entry is
+ * kept at most {@code application.cache.verified-tokens.time-to-live-seconds}. The least recently used token is evicted
+ * when the cache is full.
+ * <p>
+ * Tokens are looked up by their signature, and the whole token is compared on a hit.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final LruCache<String, Entry> entries;
+
+    private final long timeToLiveMillis;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public VerifiedTokenCache(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.CacheSettings settings = applicationProperties.getCache().getVerifiedTokens();
+        this.timeToLiveMillis = settings.getTimeToLiveSeconds() * 1000L;
+        this.entries = new LruCache<>(settings.getMaxSize());
+        this.hits = Counter.builder("security.jwt.verified.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("security.jwt.verified.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return entries.isEnabled();
+    }
+
+    /**
+     * @param token a token
+     * @return the authentication of the token if it was verified and has not expired, null otherwise
+     */
+    public Authentication get(String token) {
+        if (!entries.isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(key(token));
+        if (entry == null || !entry.token.equals(token)) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            evict(token);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.authentication;
+    }
+
+    /**
+     * @param token         a verified token
+     * @param verifiedToken its authentication and expiration
+     */
+    public void put(String token, TokenProvider.VerifiedToken verifiedToken) {
+        entries.put(key(token), new Entry(token, verifiedToken.getAuthentication(),
+            Math.min(verifiedToken.getExpiresAt(), System.currentTimeMillis() + timeToLiveMillis)));
+    }
+
+    /**
+     * @param token a token that must be verified again on its next use
+     */
+    public void evict(String token) {
+        entries.remove(key(token), entry -> entry.token.equals(token));
+    }
+
+    private static String key(String token) {
+        // the signature is already a digest of the whole token
+        int signatureStart = token.lastIndexOf('.');
+        return signatureStart >= 0 ? token.substring(signatureStart + 1) : token;
+    }
+
+    private static final class Entry {
+
+        private final String token;
+
+        private final Authentication authentication;
+
+        private final long expiresAt;
+
+        private Entry(String token, Authentication authentication, long expiresAt) {
+            this.token = token;
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.kairemor.test.service;
 
 import com.kairemor.test.service.dto.*;
 import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface KeycloakService {
 
@@ -16,6 +19,10 @@ public interface KeycloakService {
 
     List<UserLogDTO> createUsersWithHashedPassword(List<UserDTO> users);
 
+    void createUsersWithHashedPassword(Iterator<UserDTO> users, Consumer<UserLogDTO> userLogConsumer);
+
+    List<UserLogDTO> importUsersWithHashedPassword(List<UserDTO> users, PartialImportRepresentation.Policy policy);
+
     void updateUser(UserDTO user);
 
     void changePassword(PasswordResetDTO passwordResetDTO);
@@ -40,6 +47,8 @@ public interface KeycloakService {
 
     List<UserRepresentation> getUsersByGroup(String groupId);
 
+    int getUsersByGroup(String groupName, int first, Integer max, Consumer<GroupMemberDTO> consumer, Runnable pageEnd);
+
     HashMap<String,List<GroupDTO>> getAllGroups();
 
     HashMap<String,List<GroupDTO>> updateUser(List<String> groups, String userId);
@@ -3,22 +3,31 @@ package com.kairemor.test.service;
 import com.kairemor.test.config.Constants;
 import com.kairemor.test.domain.Authority;
 import com.kairemor.test.domain.User;
+import com.kairemor.test.exception.KeycloakUnavailableException;
+import com.kairemor.test.exception.TooManyLoginAttemptsException;
 import com.kairemor.test.repository.AuthorityRepository;
 import com.kairemor.test.repository.UserRepository;
+import com.kairemor.test.security.LoginThrottle;
 import com.kairemor.test.security.SecurityUtils;
+import com.kairemor.test.security.jwt.RevokedTokens;
+import com.kairemor.test.security.jwt.VerifiedTokenCache;
 import com.kairemor.test.service.dto.*;
 import org.apache.commons.lang.RandomStringUtils;
 import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
@@ -27,6 +36,11 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.servlet.http.HttpServletResponse;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -44,16 +58,30 @@ public class UserService {
 
     private final KeycloakService keycloakService;
 
+    private final Executor authenticationExecutor;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final RevokedTokens revokedTokens;
+
+    private final LoginThrottle loginThrottle;
+
     private final int RANDOM_PASSWORD_LENGTH = 8;
 
 
     @Value("${application.domain}")
     private String appDomain;
 
-    public UserService(UserRepository userRepository, AuthorityRepository authorityRepository, KeycloakService keycloakService) {
+    public UserService(UserRepository userRepository, AuthorityRepository authorityRepository, KeycloakService keycloakService,
+                       @Qualifier("authenticationExecutor") Executor authenticationExecutor, VerifiedTokenCache verifiedTokenCache,
+                       RevokedTokens revokedTokens, LoginThrottle loginThrottle) {
         this.userRepository = userRepository;
         this.authorityRepository = authorityRepository;
         this.keycloakService = keycloakService;
+        this.authenticationExecutor = authenticationExecutor;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revokedTokens = revokedTokens;
+        this.loginThrottle = loginThrottle;
     }
     /**
      * Register a new user using keycloak API
@@ -93,6 +121,25 @@ public class UserService {
         return keycloakService.createUsersWithHashedPassword(users);
     }
 
+    /**
+     * Create users read incrementally on keycloak with password hashed with bcrypt
+     * @param users Users to create, read as they are needed
+     * @param userLogConsumer Receives the result of each creation as soon as it is available
+     */
+    public void createUsersWithHashedPassword(Iterator<UserDTO> users, Consumer<UserLogDTO> userLogConsumer){
+        keycloakService.createUsersWithHashedPassword(users, userLogConsumer);
+    }
+
+    /**
+     * Import multiple users with password hashed with bcrypt through the keycloak partial import API
+     * @param users List of Users to import
+     * @param policy What to do with users already present, SKIP or OVERWRITE
+     * @return The result of each import
+     */
+    public List<UserLogDTO> importUsersWithHashedPassword(List<UserDTO> users, PartialImportRepresentation.Policy policy){
+        return keycloakService.importUsersWithHashedPassword(users, policy);
+    }
+
     /**
      * Generate a random password
      * @param length password length
@@ -126,24 +173,6 @@ public class UserService {
         keycloakService.resetPassword(passwordForgotDTO);
     }
 
-    /**
-     * Authenticate a user using keycloak API
-     * @param user
-     * @return AccessTokenResponse, an object containing an access token, a refresh token and expired time for tokens
-     */
-    public AccessTokenResponse signIn(UserDTO user){
-        return keycloakService.signIn(user);
-    }
-
-    /**
-     * Authenticate a user using keycloak API on mobile app
-     * @param user
-     * @return AccessTokenResponse, an object containing an access token, a refresh token and expired time for tokens
-     */
-    public AccessTokenResponse mobileSignIn(UserDTO user){
-        return keycloakService.mobileSignIn(user);
-    }
-
     /**
      * Get a refresh token to renew access token
      * @param
@@ -160,6 +189,68 @@ public class UserService {
         return genRefreshToken(response, refreshTokenName, accessTokenResponse);
     }
 
+    /**
+     * Authenticate a user using keycloak API, on the authentication executor.
+     * Throttled attempts fail with a {@link TooManyLoginAttemptsException} without reaching keycloak.
+     * @param user
+     * @param clientIp address of the client, for the sign-in throttling
+     * @return AccessTokenResponse, completed once keycloak answers
+     */
+    public CompletableFuture<AccessTokenResponse> signInAsync(UserDTO user, String clientIp){
+        return supplySignIn(user, clientIp, () -> keycloakService.signIn(user));
+    }
+
+    /**
+     * Get a refresh token to renew access token, on the authentication executor.
+     * The caller sets the cookie built by {@link #buildRefreshTokenCookie(String, AccessTokenResponse)} on its response.
+     * @param refreshToken current refresh token
+     * @return AccessTokenResponse, completed once keycloak answers
+     */
+    public CompletableFuture<AccessTokenResponse> refreshTokenAsync(String refreshToken) {
+        return supplyAuthentication(() -> keycloakService.refreshToken(refreshToken));
+    }
+
+    public CompletableFuture<AccessTokenResponse> mobileRefreshTokenAsync(String refreshToken) {
+        return supplyAuthentication(() -> keycloakService.mobileRefreshToken(refreshToken));
+    }
+
+    /**
+     * @param refreshTokenName name of the cookie
+     * @param accessTokenResponse tokens returned by keycloak
+     * @return the cookie holding the refresh token
+     */
+    public ResponseCookie buildRefreshTokenCookie(String refreshTokenName, AccessTokenResponse accessTokenResponse) {
+        return ResponseCookie.from(refreshTokenName, accessTokenResponse.getRefreshToken())
+            .maxAge(accessTokenResponse.getRefreshExpiresIn())
+            .httpOnly(true)
+            .secure(true)
+            .sameSite("None")
+            .path("/")
+            .domain(appDomain)
+            .build();
+    }
+
+    private CompletableFuture<AccessTokenResponse> supplySignIn(UserDTO user, String clientIp, Supplier<AccessTokenResponse> exchange) {
+        try {
+            loginThrottle.acquire(user.getLogin(), clientIp);
+        } catch (TooManyLoginAttemptsException e) {
+            CompletableFuture<AccessTokenResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        return supplyAuthentication(exchange);
+    }
+
+    private <T> CompletableFuture<T> supplyAuthentication(Supplier<T> exchange) {
+        try {
+            return CompletableFuture.supplyAsync(exchange, authenticationExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new KeycloakUnavailableException("Too many authentication requests, please retry later", e));
+            return rejected;
+        }
+    }
+
     /**
      * Return all groups
      * @return List of groups representation
@@ -169,9 +260,14 @@ public class UserService {
     }
 
     /**
-     * logOut a user using keycloak API
+     * logOut a user using keycloak API, the access token of the request is revoked on every node
      */
     public void logOut(){
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            revokedTokens.revoke(authentication);
+        }
+        SecurityUtils.getCurrentUserJWT().ifPresent(verifiedTokenCache::evict);
         keycloakService.logOut();
     }
 
@@ -197,6 +293,19 @@ public class UserService {
         return keycloakService.getUsersByGroup(groupId);
     }
 
+    /**
+     * Hand the members of a group to the consumer, page by page
+     * @param groupName name of the group
+     * @param first position of the first member to read
+     * @param max maximum number of members to read, all the remaining members if null
+     * @param consumer receives each member as soon as its page is fetched
+     * @param pageEnd called once the members of each page are handed to the consumer
+     * @return the number of members read
+     */
+    public int getUsersByGroup(String groupName, int first, Integer max, Consumer<GroupMemberDTO> consumer, Runnable pageEnd){
+        return keycloakService.getUsersByGroup(groupName, first, max, consumer, pageEnd);
+    }
+
     public HashMap<String,List<GroupDTO>> updateUser(List<String> groups, String userId){
         return keycloakService.updateUser(groups,userId);
     }
@@ -364,14 +473,7 @@ public class UserService {
     }
 
     private AccessTokenResponse genRefreshToken(HttpServletResponse response, String refreshTokenName, AccessTokenResponse accessTokenResponse) {
-        ResponseCookie cookie = ResponseCookie.from(refreshTokenName, accessTokenResponse.getRefreshToken())
-            .maxAge(accessTokenResponse.getRefreshExpiresIn())
-            .httpOnly(true)
-            .secure(true)
-            .sameSite("None")
-            .path("/")
-            .domain(appDomain)
-            .build();
+        ResponseCookie cookie = buildRefreshTokenCookie(refreshTokenName, accessTokenResponse);
         response.setHeader(HttpHeaders.SET_COOKIE, cookie.toString());
         return accessTokenResponse;
     }
@@ -1,9 +1,13 @@
 package com.kairemor.test.service.dto;
 
+import java.io.Serializable;
+
 /**
  * A DTO Representing a keycloak Group
  */
-public class GroupDTO {
+public class GroupDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String id;
 
@@ -0,0 +1,67 @@
+package com.kairemor.test.service.dto;
+
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * A DTO Representing a member of a keycloak Group, with only the fields needed by the clients
+ */
+public class GroupMemberDTO {
+
+    private String id;
+
+    private String username;
+
+    private String email;
+
+    private String firstName;
+
+    private String lastName;
+
+    public GroupMemberDTO(UserRepresentation userRepresentation) {
+        this.id = userRepresentation.getId();
+        this.username = userRepresentation.getUsername();
+        this.email = userRepresentation.getEmail();
+        this.firstName = userRepresentation.getFirstName();
+        this.lastName = userRepresentation.getLastName();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+}
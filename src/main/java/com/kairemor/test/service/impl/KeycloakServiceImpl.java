@@ -1,13 +1,27 @@
 package com.kairemor.test.service.impl;
 
+import com.kairemor.test.config.ApplicationProperties;
 import com.kairemor.test.exception.KeycloakCreationException;
 import com.kairemor.test.exception.KeycloakForbiddenAction;
-import com.kairemor.test.security.SecurityUtils;
+import com.kairemor.test.exception.KeycloakUnavailableException;
+import com.kairemor.test.exception.KeycloakUserNotFoundException;
 import com.kairemor.test.service.KeycloakService;
 import com.kairemor.test.service.dto.*;
+import com.kairemor.test.service.impl.keycloak.BulkUserImporter;
+import com.kairemor.test.service.impl.keycloak.CurrentUserIdResolver;
+import com.kairemor.test.service.impl.keycloak.ExistingUserIndex;
+import com.kairemor.test.service.impl.keycloak.GroupCatalog;
+import com.kairemor.test.service.impl.keycloak.KeycloakCommands;
+import com.kairemor.test.service.impl.keycloak.KeycloakCommands.Bulkhead;
+import com.kairemor.test.service.impl.keycloak.GroupMembershipUpdater;
+import com.kairemor.test.service.impl.keycloak.KeycloakTokenClient;
+import com.kairemor.test.service.impl.keycloak.RefreshTokenCoalescer;
+import com.kairemor.test.service.impl.keycloak.TokenPermissionEvaluator;
+import com.kairemor.test.service.impl.keycloak.UserGroupsBatchResolver;
+import com.kairemor.test.service.impl.keycloak.UserGroupsCache;
 import com.kairemor.test.service.keycloak.KeycloakServiceInitializer;
-import org.apache.commons.lang.WordUtils;
-import org.keycloak.admin.client.resource.GroupsResource;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.keycloak.admin.client.resource.GroupResource;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
@@ -15,30 +29,66 @@ import org.keycloak.authorization.client.AuthzClient;
 import org.keycloak.representations.AccessTokenResponse;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class KeycloakServiceImpl implements KeycloakService {
+    private static final long FAILED_USER_ID_SUFFIX = 2L;
     private final Logger log = LoggerFactory.getLogger(KeycloakService.class);
     private final KeycloakServiceInitializer keycloakServiceInitializer;
-    private final String PREFIX = "OLD_";
-
-    public KeycloakServiceImpl(KeycloakServiceInitializer keycloakServiceInitializer) {
+    private final KeycloakTokenClient keycloakTokenClient;
+    private final BulkUserImporter bulkUserImporter;
+    private final CurrentUserIdResolver currentUserIdResolver;
+    private final GroupCatalog groupCatalog;
+    private final UserGroupsBatchResolver userGroupsBatchResolver;
+    private final GroupMembershipUpdater groupMembershipUpdater;
+    private final TokenPermissionEvaluator tokenPermissionEvaluator;
+    private final KeycloakCommands keycloakCommands;
+    private final RefreshTokenCoalescer refreshTokenCoalescer;
+    private final UserGroupsCache userGroupsCache;
+    private final Validator validator;
+    private final int bulkImportIndexPageSize;
+    private final int bulkImportIndexThreshold;
+    private final int partialImportChunkSize;
+    private final int groupMembersPageSize;
+
+    public KeycloakServiceImpl(KeycloakServiceInitializer keycloakServiceInitializer, KeycloakTokenClient keycloakTokenClient,
+                               BulkUserImporter bulkUserImporter, CurrentUserIdResolver currentUserIdResolver,
+                               GroupCatalog groupCatalog, UserGroupsBatchResolver userGroupsBatchResolver,
+                               GroupMembershipUpdater groupMembershipUpdater, TokenPermissionEvaluator tokenPermissionEvaluator,
+                               KeycloakCommands keycloakCommands, RefreshTokenCoalescer refreshTokenCoalescer,
+                               UserGroupsCache userGroupsCache, Validator validator, ApplicationProperties applicationProperties) {
         this.keycloakServiceInitializer = keycloakServiceInitializer;
+        this.keycloakTokenClient = keycloakTokenClient;
+        this.bulkUserImporter = bulkUserImporter;
+        this.currentUserIdResolver = currentUserIdResolver;
+        this.groupCatalog = groupCatalog;
+        this.userGroupsBatchResolver = userGroupsBatchResolver;
+        this.groupMembershipUpdater = groupMembershipUpdater;
+        this.tokenPermissionEvaluator = tokenPermissionEvaluator;
+        this.keycloakCommands = keycloakCommands;
+        this.refreshTokenCoalescer = refreshTokenCoalescer;
+        this.userGroupsCache = userGroupsCache;
+        this.validator = validator;
+        this.bulkImportIndexPageSize = Math.max(1, applicationProperties.getBulkImport().getIndexPageSize());
+        this.bulkImportIndexThreshold = applicationProperties.getBulkImport().getIndexThreshold();
+        this.partialImportChunkSize = Math.max(1, applicationProperties.getBulkImport().getPartialImportChunkSize());
+        this.groupMembersPageSize = Math.max(1, applicationProperties.getFanOut().getGroupMembersPageSize());
     }
 
     /**
@@ -49,10 +99,16 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @throws KeycloakCreationException if an error occurred
      */
     public String createUser(UserDTO user) {
+        return keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> createUser(user, ExistingUserIndex.ALL));
+    }
+
+    private String createUser(UserDTO user, ExistingUserIndex existingUsers) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        List<UserRepresentation> list = usersResource.search(user.getEmail());
-        if (!list.isEmpty()) {
-            return list.get(0).getId();
+        if (existingUsers.mayContain(user.getEmail())) {
+            List<UserRepresentation> list = usersResource.search(user.getEmail());
+            if (!list.isEmpty()) {
+                return list.get(0).getId();
+            }
         }
         UserRepresentation userRepresentation = buildUserRepresentation(user);
         userRepresentation.setGroups(new ArrayList<>());
@@ -64,6 +120,11 @@ public class KeycloakServiceImpl implements KeycloakService {
         attributes.put("phone_number", new ArrayList<>(Collections.singletonList(user.getPhoneNumber())));
         userRepresentation.setAttributes(attributes);
         Response response = usersResource.create(userRepresentation);
+        if (response.getStatus() == 409 && existingUsers != ExistingUserIndex.ALL) {
+            // Not in the index: created after it was loaded, or no index was loaded
+            response.close();
+            return createUser(user, ExistingUserIndex.ALL);
+        }
         if (response.getStatus() != 201) {
             throw new KeycloakCreationException(user, response.getStatusInfo());
         }
@@ -81,29 +142,31 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @throws KeycloakCreationException if an error occurred
      */
     public UserLogDTO createUserWithHashedPassword(UserDTO user) {
-        Long failureId = 0000000000001L;
+        return keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> createUserWithHashedPassword(user, ExistingUserIndex.ALL));
+    }
+
+    private UserLogDTO createUserWithHashedPassword(UserDTO user, ExistingUserIndex existingUsers) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        List<UserRepresentation> list = usersResource.search(user.getEmail());
-        if (list.size() != 0) {
-            user.setId(list.get(0).getId());
-            updateUserWithGroup(user);
-            return new UserLogDTO(list.get(0).getId(), user.getEmail(), 200);
+        if (existingUsers.mayContain(user.getEmail())) {
+            List<UserRepresentation> list = usersResource.search(user.getEmail());
+            if (list.size() != 0) {
+                user.setId(list.get(0).getId());
+                updateUserWithGroup(user);
+                return new UserLogDTO(list.get(0).getId(), user.getEmail(), 200);
+            }
         }
         UserRepresentation userRepresentation = bcryptUserRepresentation(user);
-        userRepresentation.setGroups(new ArrayList<String>());
-        if (user.getRoles() != null && !user.getRoles().isEmpty()) {
-            List<String> userRoles = user.getRoles();
-            userRepresentation.setGroups(userRoles);
-        }
-        Map<String, List<String>> attributes = new HashMap<String, List<String>>();
-        attributes.put("phone_number", new ArrayList<>(Collections.singletonList(user.getPhoneNumber())));
-        userRepresentation.setAttributes(attributes);
         Response response = usersResource.create(userRepresentation);
 
+        if (response.getStatus() == 409 && existingUsers != ExistingUserIndex.ALL) {
+            // Not in the index: created after it was loaded, or no index was loaded
+            response.close();
+            return createUserWithHashedPassword(user, ExistingUserIndex.ALL);
+        }
         if (response.getStatus() != 201) {
             String exception = new KeycloakCreationException(user, response.getStatusInfo()).getMessage();
             log.error(exception);
-            return new UserLogDTO(user.getPhoneNumber()+(++failureId), user.getEmail(), 400, exception);
+            return new UserLogDTO(failedUserLogId(user), user.getEmail(), 400, exception);
         }
 
         String userId = response.getLocation().getPath().replaceAll(".*/([^/]+)$", "$1");
@@ -135,9 +198,101 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @return NUmber of users created
      */
     public List<UserLogDTO> createUsersWithHashedPassword(List<UserDTO> users) {
-        List<UserLogDTO> userLogs = new ArrayList<>();
-        for (UserDTO userDTO : users) {
-            userLogs.add(this.createUserWithHashedPassword(userDTO));
+        ExistingUserIndex existingUsers = existingUserIndexFor(users.size());
+        return bulkUserImporter.importUsers(users, user ->
+            keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> createUserWithHashedPassword(user, existingUsers)));
+    }
+
+    /**
+     * Create users read incrementally with their roles and having bcrypt password encryption.
+     * The users are not validated when read, an invalid user is reported with a 400 log instead of being created.
+     * @param users Users to create, read as they are needed
+     * @param userLogConsumer Receives the log of each user, in order, as soon as it is available
+     */
+    @Override
+    public void createUsersWithHashedPassword(Iterator<UserDTO> users, Consumer<UserLogDTO> userLogConsumer) {
+        ExistingUserIndex existingUsers = loadExistingUserIndex();
+        bulkUserImporter.importUsers(users, user -> {
+            Set<ConstraintViolation<UserDTO>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                return new UserLogDTO(failedUserLogId(user), user.getEmail(), 400, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+            }
+            return keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> createUserWithHashedPassword(user, existingUsers));
+        }, userLogConsumer);
+    }
+
+    /**
+     * Import users having bcrypt password encryption through the realm partial import API,
+     * sending {@code application.bulk-import.partial-import-chunk-size} users per request.
+     *
+     * @param users  Users to import
+     * @param policy What to do with users already present in the realm, SKIP or OVERWRITE
+     * @return The log of each user, in the order of the users
+     */
+    @Override
+    public List<UserLogDTO> importUsersWithHashedPassword(List<UserDTO> users, PartialImportRepresentation.Policy policy) {
+        if (policy == PartialImportRepresentation.Policy.FAIL) {
+            throw new BadRequestException("Only SKIP and OVERWRITE policies are supported");
+        }
+        RealmResource realmResource = keycloakServiceInitializer.getRealmResource();
+        List<UserLogDTO> userLogs = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += partialImportChunkSize) {
+            List<UserDTO> chunk = users.subList(from, Math.min(from + partialImportChunkSize, users.size()));
+            List<UserRepresentation> userRepresentations = new ArrayList<>(chunk.size());
+            for (UserDTO userDTO : chunk) {
+                userRepresentations.add(bcryptUserRepresentation(userDTO));
+            }
+            PartialImportRepresentation partialImport = new PartialImportRepresentation();
+            partialImport.setIfResourceExists(policy.name());
+            partialImport.setUsers(userRepresentations);
+            userLogs.addAll(importChunk(realmResource, chunk, partialImport));
+            log.debug("Partial import: {}/{} users processed", userLogs.size(), users.size());
+        }
+        return userLogs;
+    }
+
+    private List<UserLogDTO> importChunk(RealmResource realmResource, List<UserDTO> chunk, PartialImportRepresentation partialImport) {
+        Map<String, JsonNode> resultsByUsername = new HashMap<>();
+        String failure = null;
+        Response response = null;
+        try {
+            response = keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> realmResource.partialImport(partialImport));
+        } catch (RuntimeException e) {
+            // the chunks imported before are committed in keycloak, their logs are still returned
+            failure = "Partial import failed, error : " + e.getMessage();
+            log.error(failure);
+        }
+        if (response != null) {
+            try {
+                if (response.getStatus() == 200) {
+                    JsonNode results = response.readEntity(JsonNode.class).path("results");
+                    for (JsonNode result : results) {
+                        if ("USER".equals(result.path("resourceType").asText())) {
+                            resultsByUsername.put(result.path("resourceName").asText().toLowerCase(Locale.ROOT), result);
+                        }
+                    }
+                } else {
+                    failure = "Partial import failed, error : " + response.getStatusInfo();
+                    log.error(failure);
+                }
+            } finally {
+                response.close();
+            }
+        }
+
+        List<UserLogDTO> userLogs = new ArrayList<>(chunk.size());
+        for (UserDTO user : chunk) {
+            JsonNode result = user.getEmail() == null ? null : resultsByUsername.get(user.getEmail().toLowerCase(Locale.ROOT));
+            if (result == null) {
+                String details = failure != null ? failure : new KeycloakCreationException(user, Response.Status.BAD_REQUEST).getMessage();
+                userLogs.add(new UserLogDTO(failedUserLogId(user), user.getEmail(), 400, details));
+            } else if ("ADDED".equals(result.path("action").asText())) {
+                userLogs.add(new UserLogDTO(result.path("id").asText(null), user.getEmail(), 201));
+            } else {
+                userLogs.add(new UserLogDTO(result.path("id").asText(null), user.getEmail(), 200));
+            }
         }
         return userLogs;
     }
@@ -151,8 +306,9 @@ public class KeycloakServiceImpl implements KeycloakService {
      */
     public int createUsers(List<UserDTO> users) {
         int insertions = 0;
-        for (UserDTO userDTO : users) {
-            String userId = this.createUser(userDTO);
+        ExistingUserIndex existingUsers = existingUserIndexFor(users.size());
+        for (String userId : bulkUserImporter.importUsers(users, user ->
+            keycloakCommands.execute(Bulkhead.ADMIN_WRITE, () -> createUser(user, existingUsers)))) {
             if (userId != null) {
                 insertions += 1;
             }
@@ -168,11 +324,16 @@ public class KeycloakServiceImpl implements KeycloakService {
      */
     public void updateUser(UserDTO userDTO) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        String login = SecurityUtils.getCurrentUserLogin()
-            .orElseThrow(() -> new KeycloakForbiddenAction("You need to signIn first in order to update your profile infos."));
-        List<UserRepresentation> list = usersResource.search(login);
-        if (list.size() == 1) {
-            UserResource userResource = usersResource.get(list.get(0).getId());
+        String userId;
+        try {
+            userId = currentUserIdResolver.getCurrentUserId()
+                .orElseThrow(() -> new KeycloakForbiddenAction("You need to signIn first in order to update your profile infos."));
+        } catch (KeycloakUserNotFoundException e) {
+            log.debug("Current user not found, nothing to update. Nested error :{}", e.getMessage());
+            return;
+        }
+        UserResource userResource = usersResource.get(userId);
+        keycloakCommands.run(Bulkhead.ADMIN_WRITE, () -> {
             UserRepresentation userRepresentation = userResource.toRepresentation();
             userRepresentation.setFirstName(userDTO.getFirstName());
             userRepresentation.setLastName(userDTO.getLastName());
@@ -185,7 +346,7 @@ public class KeycloakServiceImpl implements KeycloakService {
                 userResource.resetPassword(passwordCredential);
             }
             userResource.update(userRepresentation);
-        }
+        });
     }
 
     /**
@@ -196,11 +357,9 @@ public class KeycloakServiceImpl implements KeycloakService {
      */
     public void changePassword(PasswordResetDTO passwordResetDTO) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        UserRepresentation userRepresentation = this.getCurrentUserRepresentation(usersResource);
-        UserResource userResource = usersResource.get(userRepresentation.getId());
+        UserResource userResource = usersResource.get(this.getCurrentUserId());
         CredentialRepresentation newPasswordCredentials = this.buildPasswordRepresentation(passwordResetDTO.getNewPassword());
-        userResource.resetPassword(newPasswordCredentials);
-        userResource.update(userRepresentation);
+        keycloakCommands.run(Bulkhead.ADMIN_WRITE, () -> userResource.resetPassword(newPasswordCredentials));
     }
 
     /**
@@ -211,16 +370,18 @@ public class KeycloakServiceImpl implements KeycloakService {
      */
     public void resetPassword(PasswordForgotDTO passwordForgotDTO) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        List<UserRepresentation> list = usersResource.search(passwordForgotDTO.getEmail());
-        if (list.size() == 1) {
-            UserResource userResource = usersResource.get(list.get(0).getId());
-            UserRepresentation userRepresentation = userResource.toRepresentation();
-            CredentialRepresentation newPasswordCredentials = this.buildPasswordRepresentation(passwordForgotDTO.getNewPassword());
-            userResource.resetPassword(newPasswordCredentials);
-            userResource.update(userRepresentation);
-        } else {
-            throw new BadRequestException("Invalid user infos !");
-        }
+        keycloakCommands.run(Bulkhead.ADMIN_WRITE, () -> {
+            List<UserRepresentation> list = usersResource.search(passwordForgotDTO.getEmail());
+            if (list.size() == 1) {
+                UserResource userResource = usersResource.get(list.get(0).getId());
+                UserRepresentation userRepresentation = userResource.toRepresentation();
+                CredentialRepresentation newPasswordCredentials = this.buildPasswordRepresentation(passwordForgotDTO.getNewPassword());
+                userResource.resetPassword(newPasswordCredentials);
+                userResource.update(userRepresentation);
+            } else {
+                throw new BadRequestException("Invalid user infos !");
+            }
+        });
     }
 
     /**
@@ -230,7 +391,7 @@ public class KeycloakServiceImpl implements KeycloakService {
     @Override
     public AccessTokenResponse signIn(UserDTO user) {
         AuthzClient authzClient = keycloakServiceInitializer.getAuthzClient();
-        return authzClient.obtainAccessToken(user.getLogin(), user.getPassword());
+        return keycloakCommands.execute(Bulkhead.SIGN_IN, () -> authzClient.obtainAccessToken(user.getLogin(), user.getPassword()));
     }
 
     /**
@@ -240,7 +401,7 @@ public class KeycloakServiceImpl implements KeycloakService {
     @Override
     public AccessTokenResponse mobileSignIn(UserDTO user) {
         AuthzClient authzMobileClient = keycloakServiceInitializer.getAuthzMobileClient();
-        return authzMobileClient.obtainAccessToken(user.getLogin(), user.getPassword());
+        return keycloakCommands.execute(Bulkhead.SIGN_IN, () -> authzMobileClient.obtainAccessToken(user.getLogin(), user.getPassword()));
     }
 
     /**
@@ -261,8 +422,8 @@ public class KeycloakServiceImpl implements KeycloakService {
     @Override
     public void logOut() {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        String currentAuthenticatedUserId = this.getCurrentUserRepresentation(usersResource).getId();
-        usersResource.get(currentAuthenticatedUserId).logout();
+        String currentAuthenticatedUserId = this.getCurrentUserId();
+        keycloakCommands.run(Bulkhead.ADMIN_WRITE, () -> usersResource.get(currentAuthenticatedUserId).logout());
         log.info("User logOut end ok ID: {}", currentAuthenticatedUserId);
     }
 
@@ -300,6 +461,14 @@ public class KeycloakServiceImpl implements KeycloakService {
         userRepresentation.setFirstName(user.getFirstName());
         userRepresentation.setLastName(user.getLastName());
         userRepresentation.setCredentials(Collections.singletonList(buildCredentials(user.getPassword())));
+        userRepresentation.setGroups(new ArrayList<String>());
+        if (user.getRoles() != null && !user.getRoles().isEmpty()) {
+            List<String> userRoles = user.getRoles();
+            userRepresentation.setGroups(userRoles);
+        }
+        Map<String, List<String>> attributes = new HashMap<String, List<String>>();
+        attributes.put("phone_number", new ArrayList<>(Collections.singletonList(user.getPhoneNumber())));
+        userRepresentation.setAttributes(attributes);
         return userRepresentation;
     }
 
@@ -319,35 +488,65 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @return true if user have the permission false if not
      */
     public boolean checkUserPermissions(String permission) {
-        String currentUserId = this.getCurrentUserRepresentation(keycloakServiceInitializer.getUsersResource()).getId();
-        List<RoleRepresentation> roleRepresentationList = keycloakServiceInitializer.getUsersResource().get(currentUserId).roles().realmLevel().listAll();
-        return roleRepresentationList.stream().anyMatch(roleRepresentation -> match(roleRepresentation.getName(), permission));
+        Optional<Set<String>> tokenPermissions = tokenPermissionEvaluator.getCurrentPermissions();
+        if (tokenPermissions.isPresent()) {
+            return TokenPermissionEvaluator.isGranted(permission, tokenPermissions.get());
+        }
+        String currentUserId = this.getCurrentUserId();
+        Set<String> permissions = keycloakCommands.execute(Bulkhead.ADMIN_READ, () -> {
+            List<RoleRepresentation> roleRepresentationList = keycloakServiceInitializer.getUsersResource().get(currentUserId).roles().realmLevel().listAll();
+            Set<String> userPermissions = TokenPermissionEvaluator.toPermissions(
+                roleRepresentationList.stream().map(RoleRepresentation::getName).collect(Collectors.toList()));
+            tokenPermissionEvaluator.rememberUserPermissions(currentUserId, userPermissions);
+            return userPermissions;
+        }, () -> tokenPermissionEvaluator.getLastKnownUserPermissions(currentUserId)
+            .orElseThrow(() -> new KeycloakUnavailableException("Permissions of user " + currentUserId + " unavailable")));
+        return TokenPermissionEvaluator.isGranted(permission, permissions);
     }
 
     @Override
     public List<UserRepresentation> getUsersByGroup(String groupName) {
         RealmResource realmResource = keycloakServiceInitializer.getRealmResource();
-        GroupsResource groupsResource = realmResource.groups();
-        GroupRepresentation group = groupsResource.groups()
-            .stream()
-            .filter(groupRepresentation -> groupRepresentation.getName().equals(groupName))
-            .findFirst()
+        String groupId = groupCatalog.getGroupId(groupName)
             .orElseThrow(() -> new KeycloakForbiddenAction("This group doest not exist"));
-        return realmResource.groups().group(group.getId()).members();
+        return keycloakCommands.execute(Bulkhead.ADMIN_READ, () -> realmResource.groups().group(groupId).members());
     }
 
-    private boolean match(String keycloakRole, String roleToCheck) {
-        StringBuilder stringBuilder = new StringBuilder();
-        String[] composite = keycloakRole.split("_");
-        if (composite.length == 1) {
-            return false;
-        }
-        stringBuilder.append(composite[1]);
-        for (int i = 2; i < composite.length; i++) {
-            stringBuilder.append("_");
-            stringBuilder.append(composite[i]);
+    /**
+     * Read the members of a group page by page, {@code application.fan-out.group-members-page-size} at a time, so a
+     * large group is never held in memory.
+     *
+     * @param groupName name of the group
+     * @param first     position of the first member to read
+     * @param max       maximum number of members to read, all the remaining members if null
+     * @param consumer  receives each member as soon as its page is fetched
+     * @param pageEnd   called once the members of each page are handed to the consumer
+     * @return the number of members read, fewer than max once the end of the group is reached
+     * @throws KeycloakForbiddenAction if the group does not exist
+     */
+    @Override
+    public int getUsersByGroup(String groupName, int first, Integer max, Consumer<GroupMemberDTO> consumer, Runnable pageEnd) {
+        String groupId = groupCatalog.getGroupId(groupName)
+            .orElseThrow(() -> new KeycloakForbiddenAction("This group doest not exist"));
+        GroupResource groupResource = keycloakServiceInitializer.getRealmResource().groups().group(groupId);
+        int position = Math.max(0, first);
+        int read = 0;
+        while (max == null || read < max) {
+            int pageSize = max == null ? groupMembersPageSize : Math.min(groupMembersPageSize, max - read);
+            int from = position;
+            int count = pageSize;
+            List<UserRepresentation> members = keycloakCommands.execute(Bulkhead.ADMIN_READ, () -> groupResource.members(from, count));
+            for (UserRepresentation member : members) {
+                consumer.accept(new GroupMemberDTO(member));
+            }
+            pageEnd.run();
+            read += members.size();
+            position += members.size();
+            if (members.size() < pageSize) {
+                break;
+            }
         }
-        return roleToCheck.equalsIgnoreCase(stringBuilder.toString());
+        return read;
     }
 
     /**
@@ -357,12 +556,17 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @return List<String> User groups arrays
      */
     public HashMap<String, List<GroupDTO>> getUserGroups(String userId) {
+        HashMap<String, List<GroupDTO>> userGroups = userGroupsCache.get(userId);
+        if (userGroups != null) {
+            return userGroups;
+        }
+        userGroups = new HashMap<>();
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        HashMap<String, List<GroupDTO>> userGroups = new HashMap<>();
         try {
             UserResource userResource = usersResource.get(userId);
-            List<GroupRepresentation> groupRepresentationList = userResource.groups();
-            userGroups = this.parseGroup(groupRepresentationList);
+            List<GroupRepresentation> groupRepresentationList = keycloakCommands.execute(Bulkhead.ADMIN_READ, userResource::groups);
+            userGroups = groupCatalog.parseGroups(groupRepresentationList);
+            userGroupsCache.put(userId, userGroups);
         } catch (NotFoundException notFoundException) {
             log.debug("User with id {} not found. Nested error :{}", userId, notFoundException.getMessage());
         }
@@ -376,10 +580,11 @@ public class KeycloakServiceImpl implements KeycloakService {
      * @return HashMap of userId and corresponding groups
      */
     public List<UserWithGroupDTO> getUsersGroups(String[] usersId) {
+        Map<String, HashMap<String, List<GroupDTO>>> groupsByUser = userGroupsBatchResolver.resolve(usersId, this::getUserGroups);
         List<UserWithGroupDTO> userWithGroupDTOS = new ArrayList<>();
         HashMap<String, List<GroupDTO>> usersGroups;
         for (String userId : usersId) {
-            usersGroups = getUserGroups(userId);
+            usersGroups = groupsByUser.get(userId);
             userWithGroupDTOS.add(new UserWithGroupDTO(userId, usersGroups.get("oldRoles"), usersGroups.get("newRoles")));
         }
         return userWithGroupDTOS;
@@ -392,81 +597,64 @@ public class KeycloakServiceImpl implements KeycloakService {
      */
     @Override
     public HashMap<String, List<GroupDTO>> getAllGroups() {
-        RealmResource realmResource = keycloakServiceInitializer.getRealmResource();
-        GroupsResource groupsResource = realmResource.groups();
-        return parseGroup(groupsResource.groups());
-    }
-
-    private HashMap<String, List<GroupDTO>> parseGroup(List<GroupRepresentation> groupRepresentationList) {
-        List<GroupDTO> oldGroups = new ArrayList<>();
-        List<GroupDTO> newGroups = new ArrayList<>();
-        HashMap<String, List<GroupDTO>> groups = new HashMap<>();
-
-        groupRepresentationList.stream()
-            .filter(groupRepresentation -> groupRepresentation.getName().contains(PREFIX))
-            .forEach(groupRepresentation -> {
-                    String displayedName = this.parseGroupName(groupRepresentation.getName(), PREFIX);
-                    oldGroups.add(new GroupDTO(groupRepresentation.getId(), displayedName));
-                }
-            );
-        groupRepresentationList.stream()
-            .filter(groupRepresentation -> !groupRepresentation.getName().contains(PREFIX))
-            .forEach(groupRepresentation -> {
-                    String displayedName = this.parseGroupName(groupRepresentation.getName(), "");
-                    newGroups.add(new GroupDTO(groupRepresentation.getId(), displayedName));
-                }
-            );
-        groups.put("oldRoles", oldGroups);
-        groups.put("newRoles", newGroups);
-        return groups;
-    }
-
-    private String parseGroupName(String groupName, String prefix) {
-        String rawGroupName = groupName.substring(groupName.indexOf(prefix) + prefix.length());
-        return WordUtils.capitalizeFully(String.join(" ", rawGroupName.split("_")));
+        return groupCatalog.getAllGroups();
     }
 
     public HashMap<String, List<GroupDTO>> updateUser(List<String> groups, String userId) {
         UsersResource usersResource = keycloakServiceInitializer.getUsersResource();
-        HashMap<String, List<GroupDTO>> userGroups;
         try {
+            groupCatalog.refreshIfUnknown(groups);
             UserResource userResource = usersResource.get(userId);
-            List<GroupRepresentation> groupRepresentations = userResource.groups();
-            for (GroupRepresentation groupRepresentation : groupRepresentations) {
-                if (!groups.contains(groupRepresentation.getId())) {
-                    userResource.leaveGroup(groupRepresentation.getId());
-                } else {
-                    groups.remove(groupRepresentation.getId());
-                }
+            Set<String> currentIds = new HashSet<>();
+            for (GroupRepresentation groupRepresentation : keycloakCommands.execute(Bulkhead.ADMIN_READ, userResource::groups)) {
+                currentIds.add(groupRepresentation.getId());
             }
-
-            for (String group : groups) {
-                userResource.joinGroup(group);
-            }
-            String[] id = {userId};
-            userGroups = getUserGroups(id[0]);
+            Set<String> memberships = keycloakCommands.execute(Bulkhead.ADMIN_WRITE,
+                () -> groupMembershipUpdater.update(userResource, currentIds, groups));
+            HashMap<String, List<GroupDTO>> userGroups = groupCatalog.getGroups(memberships);
+            userGroupsCache.put(userId, userGroups);
             return userGroups;
         } catch (NotFoundException notFoundException) {
+            userGroupsCache.evict(userId);
             log.error("User with id {} not found. Nested error :{}", userId, notFoundException.getMessage());
+        } catch (RuntimeException e) {
+            // some memberships may have changed before the failure
+            userGroupsCache.evict(userId);
+            throw e;
         }
         return null;
     }
 
-    private UserRepresentation getCurrentUserRepresentation(UsersResource usersResource) {
-        String login = SecurityUtils.getCurrentUserLogin()
+    /**
+     * Id reported for a user that could not be created or imported: its phone number followed by 2.
+     */
+    private static String failedUserLogId(UserDTO user) {
+        return user.getPhoneNumber() + FAILED_USER_ID_SUFFIX;
+    }
+
+    /**
+     * Paging through the whole realm only pays off for large imports, the users of a smaller one are created straight
+     * away and looked up on conflict.
+     */
+    private ExistingUserIndex existingUserIndexFor(int importSize) {
+        return importSize < bulkImportIndexThreshold ? ExistingUserIndex.NONE : loadExistingUserIndex();
+    }
+
+    private ExistingUserIndex loadExistingUserIndex() {
+        ExistingUserIndex existingUsers = keycloakCommands.execute(Bulkhead.ADMIN_READ,
+            () -> ExistingUserIndex.load(keycloakServiceInitializer.getUsersResource(), bulkImportIndexPageSize));
+        log.debug("Loaded existing users index for bulk import");
+        return existingUsers;
+    }
+
+    private String getCurrentUserId() {
+        return currentUserIdResolver.getCurrentUserId()
             .orElseThrow(() -> new KeycloakForbiddenAction("You need to signIn first in order to perform this operation."));
-        return usersResource.search(login).get(0);
     }
 
     private AccessTokenResponse genToken(String refreshToken, MultiValueMap<String, String> requestBody) {
-        RestTemplate restTemplate = new RestTemplate();
-        requestBody.add("refresh_token",refreshToken);
-        String refreshTokenUrl = requestBody.getFirst("url");
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Content-Type", "application/x-www-form-urlencoded");
-        HttpEntity<MultiValueMap> request = new HttpEntity<>(requestBody,headers);
-        ResponseEntity<AccessTokenResponse> response = restTemplate.postForEntity(refreshTokenUrl, request, AccessTokenResponse.class);
-        return response.getBody();
+        return refreshTokenCoalescer.refresh(requestBody.getFirst("client_id"), refreshToken, () -> keycloakCommands.execute(Bulkhead.REFRESH,
+            () -> keycloakTokenClient.refreshToken(keycloakServiceInitializer.getTokenUrl(), requestBody, refreshToken)));
     }
 
 }
@@ -0,0 +1,76 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import org.apache.http.client.HttpClient;
+import org.keycloak.authorization.client.AuthzClient;
+import org.keycloak.authorization.client.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link AuthzClient} per Keycloak client id.
+ * <p>
+ * Creating an {@link AuthzClient} fetches the realm discovery document and builds a new HTTP client,
+ * so clients are built once and only rebuilt when the configuration registered for a client id changes.
+ * A failed creation is never cached, the next call retries the discovery.
+ */
+@Component
+public class AuthzClientRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(AuthzClientRegistry.class);
+
+    private final ConcurrentMap<String, RegisteredClient> clients = new ConcurrentHashMap<>();
+
+    private final HttpClient keycloakTokenHttpClient;
+
+    public AuthzClientRegistry(HttpClient keycloakTokenHttpClient) {
+        this.keycloakTokenHttpClient = keycloakTokenHttpClient;
+    }
+
+    /**
+     * Return the client registered for the given client id, building it if needed.
+     *
+     * @param serverUrl Keycloak server url
+     * @param realm     realm of the client
+     * @param clientId  Keycloak client id
+     * @param secret    client secret
+     * @return a shared AuthzClient
+     */
+    public AuthzClient getClient(String serverUrl, String realm, String clientId, String secret) {
+        String fingerprint = serverUrl + "|" + realm + "|" + secret;
+        RegisteredClient registeredClient = clients.get(clientId);
+        if (registeredClient != null && registeredClient.fingerprint.equals(fingerprint)) {
+            return registeredClient.authzClient;
+        }
+        return clients.compute(clientId, (id, current) -> {
+            if (current != null && current.fingerprint.equals(fingerprint)) {
+                return current;
+            }
+            log.debug("Building AuthzClient for client {}", id);
+            return new RegisteredClient(fingerprint, createClient(serverUrl, realm, id, secret));
+        }).authzClient;
+    }
+
+    private AuthzClient createClient(String serverUrl, String realm, String clientId, String secret) {
+        Map<String, Object> clientCredentials = new HashMap<>();
+        clientCredentials.put("secret", secret);
+        clientCredentials.put("grant_type", "password");
+        return AuthzClient.create(new Configuration(serverUrl, realm, clientId, clientCredentials, keycloakTokenHttpClient));
+    }
+
+    private static final class RegisteredClient {
+        private final String fingerprint;
+        private final AuthzClient authzClient;
+
+        private RegisteredClient(String fingerprint, AuthzClient authzClient) {
+            this.fingerprint = Objects.requireNonNull(fingerprint);
+            this.authzClient = authzClient;
+        }
+    }
+}
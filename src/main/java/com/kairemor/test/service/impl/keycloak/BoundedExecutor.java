@@ -0,0 +1,96 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an executor with at most a fixed number of them in flight.
+ * Submitting blocks the caller while all the permits are taken.
+ */
+public class BoundedExecutor {
+
+    private final Executor executor;
+
+    private final Semaphore permits;
+
+    public BoundedExecutor(Executor executor, int maxInFlight) {
+        this.executor = executor;
+        this.permits = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        permits.acquireUninterruptibly();
+        return run(task);
+    }
+
+    /**
+     * Submit a task unless no permit frees up in time. A task cancelled before it starts does not run.
+     *
+     * @param task    the task
+     * @param timeout how long to wait for a permit
+     * @param unit    unit of the timeout
+     * @param <T>     result of the task
+     * @return the task, failed with a {@link TimeoutException} when it could not be submitted in time
+     */
+    public <T> CompletableFuture<T> trySubmit(Supplier<T> task, long timeout, TimeUnit unit) {
+        try {
+            if (permits.tryAcquire(timeout, unit)) {
+                return run(task);
+            }
+            return failed(new TimeoutException("No permit within " + unit.toMillis(timeout) + " ms"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> run(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!result.isDone()) {
+                        result.complete(task.get());
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+
+    /**
+     * Wait for a task, rethrowing its error as is when it is unchecked.
+     *
+     * @param future the task
+     * @param <T>    result of the task
+     * @return the result of the task
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.service.dto.UserDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the creation of a list of users on the {@code bulkImportExecutor}.
+ * <p>
+ * At most {@code application.bulk-import.concurrency} creations are in flight at any time, across all running imports,
+ * and at most {@code application.bulk-import.batch-size} results are pending per import: the oldest result has to be
+ * collected before another user is submitted. Results are returned in the order of the submitted users.
+ */
+@Component
+public class BulkUserImporter {
+
+    private final Logger log = LoggerFactory.getLogger(BulkUserImporter.class);
+
+    private final BoundedExecutor boundedExecutor;
+
+    private final int batchSize;
+
+    public BulkUserImporter(@Qualifier("bulkImportExecutor") Executor bulkImportExecutor, ApplicationProperties applicationProperties) {
+        this.boundedExecutor = new BoundedExecutor(bulkImportExecutor, applicationProperties.getBulkImport().getConcurrency());
+        this.batchSize = Math.max(1, applicationProperties.getBulkImport().getBatchSize());
+    }
+
+    /**
+     * Apply the creator on every user.
+     *
+     * @param users   users to create
+     * @param creator creation of a single user
+     * @param <R>     result of a single creation
+     * @return the results, in the order of the users
+     * @throws RuntimeException the first error thrown by the creator, as the serial loop would
+     */
+    public <R> List<R> importUsers(List<UserDTO> users, Function<UserDTO, R> creator) {
+        List<R> results = new ArrayList<>(users.size());
+        importUsers(users.iterator(), creator, results::add);
+        return results;
+    }
+
+    /**
+     * Apply the creator on every user read from the iterator and hand each result to the consumer as soon as it and
+     * all the results before it are available.
+     * <p>
+     * Users are only read from the iterator while fewer than {@code batch-size} results are pending, so the iterator
+     * can be backed by a stream of any size. The consumer is always called from the calling thread.
+     *
+     * @param users    users to create
+     * @param creator  creation of a single user
+     * @param consumer receives the results, in the order of the users
+     * @param <R>      result of a single creation
+     * @throws RuntimeException the first error thrown by the creator, as the serial loop would
+     */
+    public <R> void importUsers(Iterator<UserDTO> users, Function<UserDTO, R> creator, Consumer<R> consumer) {
+        Deque<CompletableFuture<R>> pending = new ArrayDeque<>(batchSize);
+        long processed = 0;
+        while (users.hasNext()) {
+            if (pending.size() >= batchSize) {
+                consumer.accept(BoundedExecutor.await(pending.poll()));
+                processed++;
+            }
+            UserDTO user = users.next();
+            pending.add(boundedExecutor.submit(() -> creator.apply(user)));
+        }
+        while (!pending.isEmpty()) {
+            consumer.accept(BoundedExecutor.await(pending.poll()));
+            processed++;
+        }
+        log.debug("Bulk import: {} users processed", processed);
+    }
+}
@@ -0,0 +1,76 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.exception.KeycloakUserNotFoundException;
+import com.kairemor.test.security.SecurityUtils;
+import com.kairemor.test.service.keycloak.KeycloakServiceInitializer;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Resolves the Keycloak id of the current user.
+ * <p>
+ * A Keycloak access token already carries the id in its {@code sub} claim. Otherwise the login is resolved through
+ * the {@link #USER_IDS_CACHE} cache, and Keycloak is only searched on a cache miss.
+ */
+@Component
+public class CurrentUserIdResolver {
+
+    public static final String USER_IDS_CACHE = "keycloakUserIds";
+
+    private final KeycloakServiceInitializer keycloakServiceInitializer;
+
+    private final KeycloakCommands keycloakCommands;
+
+    private final Cache userIdsCache;
+
+    public CurrentUserIdResolver(KeycloakServiceInitializer keycloakServiceInitializer, KeycloakCommands keycloakCommands,
+                                 CacheManager cacheManager) {
+        this.keycloakServiceInitializer = keycloakServiceInitializer;
+        this.keycloakCommands = keycloakCommands;
+        this.userIdsCache = Objects.requireNonNull(cacheManager.getCache(USER_IDS_CACHE), "Unable to find cache " + USER_IDS_CACHE);
+    }
+
+    /**
+     * @return the Keycloak id of the current user, empty if no user is authenticated
+     * @throws KeycloakUserNotFoundException if the login of the current user is not known by Keycloak
+     */
+    public Optional<String> getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken) {
+            return Optional.ofNullable(((JwtAuthenticationToken) authentication).getToken().getSubject());
+        }
+        return SecurityUtils.getCurrentUserLogin().map(this::getUserId);
+    }
+
+    /**
+     * @param login username or email of a user
+     * @return the Keycloak id of the user
+     * @throws KeycloakUserNotFoundException if no user has exactly this username or email
+     */
+    public String getUserId(String login) {
+        String userId = userIdsCache.get(login, String.class);
+        if (userId == null) {
+            userId = searchUserId(login);
+            userIdsCache.put(login, userId);
+        }
+        return userId;
+    }
+
+    private String searchUserId(String login) {
+        // search() matches substrings of username, email, first and last name, keep the exact match only
+        return keycloakCommands.execute(KeycloakCommands.Bulkhead.ADMIN_READ, () -> keycloakServiceInitializer.getUsersResource().search(login)).stream()
+            .filter(userRepresentation -> login.equalsIgnoreCase(userRepresentation.getUsername())
+                || login.equalsIgnoreCase(userRepresentation.getEmail()))
+            .map(UserRepresentation::getId)
+            .findFirst()
+            .orElseThrow(() -> new KeycloakUserNotFoundException(login));
+    }
+}
@@ -0,0 +1,73 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Set of the emails and usernames present in the realm, loaded once before a bulk import so that
+ * users absent from the realm can be created without searching them first.
+ * <p>
+ * The index is a snapshot: a user created after it was loaded is reported as absent, callers have to handle
+ * the conflict returned by Keycloak in that case.
+ */
+public final class ExistingUserIndex {
+
+    /**
+     * Index reporting every user as possibly existing, callers always check Keycloak.
+     */
+    public static final ExistingUserIndex ALL = new ExistingUserIndex(null);
+
+    /**
+     * Index reporting every user as absent, callers create users straight away and rely on the conflict returned by
+     * Keycloak for the existing ones.
+     */
+    public static final ExistingUserIndex NONE = new ExistingUserIndex(Collections.emptySet());
+
+    private final Set<String> logins;
+
+    private ExistingUserIndex(Set<String> logins) {
+        this.logins = logins;
+    }
+
+    /**
+     * Page through the users of the realm and index their emails and usernames.
+     *
+     * @param usersResource users of the realm
+     * @param pageSize      number of users fetched per request
+     * @return the index
+     */
+    public static ExistingUserIndex load(UsersResource usersResource, int pageSize) {
+        Set<String> logins = new HashSet<>();
+        int first = 0;
+        List<UserRepresentation> page;
+        do {
+            page = usersResource.list(first, pageSize);
+            for (UserRepresentation userRepresentation : page) {
+                add(logins, userRepresentation.getEmail());
+                add(logins, userRepresentation.getUsername());
+            }
+            first += page.size();
+        } while (page.size() == pageSize);
+        return new ExistingUserIndex(logins);
+    }
+
+    /**
+     * @param login email or username
+     * @return false if the login was not in the realm when the index was loaded, or if there is no login to look up
+     */
+    public boolean mayContain(String login) {
+        return login != null && (logins == null || logins.contains(login.toLowerCase(Locale.ROOT)));
+    }
+
+    private static void add(Set<String> logins, String login) {
+        if (login != null) {
+            logins.add(login.toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.exception.KeycloakUnavailableException;
+import com.kairemor.test.service.dto.GroupDTO;
+import com.kairemor.test.service.keycloak.KeycloakServiceInitializer;
+import org.apache.commons.lang.WordUtils;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Catalog of the realm groups, parsed once and shared by every node through the {@link #GROUP_CATALOG_CACHE} cache.
+ * Snapshots read from the cache are shared between threads and must not be modified.
+ * <p>
+ * The catalog is refreshed on a schedule, and on demand when a group id unknown to the catalog is used. While Keycloak
+ * is unavailable, the last catalog seen by this node is served instead.
+ */
+@Component
+public class GroupCatalog {
+
+    public static final String GROUP_CATALOG_CACHE = "keycloakGroupCatalog";
+
+    public static final String OLD_ROLES = "oldRoles";
+
+    public static final String NEW_ROLES = "newRoles";
+
+    private static final String CATALOG_KEY = "catalog";
+
+    private static final String PREFIX = "OLD_";
+
+    private final Logger log = LoggerFactory.getLogger(GroupCatalog.class);
+
+    private final KeycloakServiceInitializer keycloakServiceInitializer;
+
+    private final KeycloakCommands keycloakCommands;
+
+    private final Cache catalogCache;
+
+    private volatile Snapshot lastKnown;
+
+    public GroupCatalog(KeycloakServiceInitializer keycloakServiceInitializer, KeycloakCommands keycloakCommands,
+                        CacheManager cacheManager) {
+        this.keycloakServiceInitializer = keycloakServiceInitializer;
+        this.keycloakCommands = keycloakCommands;
+        this.catalogCache = Objects.requireNonNull(cacheManager.getCache(GROUP_CATALOG_CACHE), "Unable to find cache " + GROUP_CATALOG_CACHE);
+    }
+
+    /**
+     * @return all the groups of the realm, split between old and new roles
+     */
+    public HashMap<String, List<GroupDTO>> getAllGroups() {
+        Snapshot snapshot = snapshot();
+        HashMap<String, List<GroupDTO>> groups = new HashMap<>();
+        groups.put(OLD_ROLES, new ArrayList<>(snapshot.groups.get(OLD_ROLES)));
+        groups.put(NEW_ROLES, new ArrayList<>(snapshot.groups.get(NEW_ROLES)));
+        return groups;
+    }
+
+    /**
+     * @param groupName Keycloak name of the group
+     * @return the id of the group, refreshing the catalog once if the name is unknown
+     */
+    public Optional<String> getGroupId(String groupName) {
+        String groupId = snapshot().idsByName.get(groupName);
+        if (groupId == null) {
+            groupId = refreshCatalog().idsByName.get(groupName);
+        }
+        return Optional.ofNullable(groupId);
+    }
+
+    /**
+     * Refresh the catalog if one of the group ids is unknown to it.
+     *
+     * @param groupIds ids of groups
+     */
+    public void refreshIfUnknown(Collection<String> groupIds) {
+        Snapshot snapshot = snapshot();
+        if (!snapshot.namesById.keySet().containsAll(groupIds)) {
+            log.debug("Unknown group in {}, refreshing group catalog", groupIds);
+            refreshCatalog();
+        }
+    }
+
+    /**
+     * Build the groups of the given ids from the catalog, refreshing it once if one of them is unknown.
+     *
+     * @param groupIds ids of groups
+     * @return the known groups split between old and new roles
+     */
+    public HashMap<String, List<GroupDTO>> getGroups(Collection<String> groupIds) {
+        Snapshot snapshot = snapshot();
+        if (!snapshot.namesById.keySet().containsAll(groupIds)) {
+            snapshot = refreshCatalog();
+        }
+        List<GroupRepresentation> groupRepresentations = new ArrayList<>(groupIds.size());
+        for (String groupId : groupIds) {
+            String groupName = snapshot.namesById.get(groupId);
+            if (groupName != null) {
+                GroupRepresentation groupRepresentation = new GroupRepresentation();
+                groupRepresentation.setId(groupId);
+                groupRepresentation.setName(groupName);
+                groupRepresentations.add(groupRepresentation);
+            }
+        }
+        return parse(groupRepresentations, snapshot.displayedNamesById);
+    }
+
+    /**
+     * Split groups between old and new roles, reusing the displayed names of the catalog.
+     *
+     * @param groupRepresentationList groups to parse
+     * @return the groups split between old and new roles
+     */
+    public HashMap<String, List<GroupDTO>> parseGroups(List<GroupRepresentation> groupRepresentationList) {
+        return parse(groupRepresentationList, snapshot().displayedNamesById);
+    }
+
+    @Scheduled(fixedDelayString = "${application.cache.groups.refresh-millis:300000}")
+    public void refresh() {
+        try {
+            refreshCatalog();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh group catalog: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = catalogCache.get(CATALOG_KEY, Snapshot.class);
+        if (snapshot == null) {
+            return loadIfAbsent();
+        }
+        if (snapshot != lastKnown) {
+            // loaded by another node
+            lastKnown = snapshot;
+        }
+        return snapshot;
+    }
+
+    private synchronized Snapshot loadIfAbsent() {
+        Snapshot snapshot = catalogCache.get(CATALOG_KEY, Snapshot.class);
+        return snapshot != null ? snapshot : refreshCatalog();
+    }
+
+    private synchronized Snapshot refreshCatalog() {
+        return keycloakCommands.execute(KeycloakCommands.Bulkhead.ADMIN_READ, this::loadCatalog, this::lastKnownCatalog);
+    }
+
+    private Snapshot lastKnownCatalog() {
+        Snapshot snapshot = lastKnown;
+        if (snapshot == null) {
+            throw new KeycloakUnavailableException("Group catalog unavailable");
+        }
+        log.warn("Could not load group catalog, serving the last known one");
+        return snapshot;
+    }
+
+    private Snapshot loadCatalog() {
+        List<GroupRepresentation> groupRepresentations = keycloakServiceInitializer.getRealmResource().groups().groups();
+        Snapshot snapshot = new Snapshot();
+        for (GroupRepresentation groupRepresentation : groupRepresentations) {
+            snapshot.idsByName.put(groupRepresentation.getName(), groupRepresentation.getId());
+            snapshot.namesById.put(groupRepresentation.getId(), groupRepresentation.getName());
+            snapshot.displayedNamesById.put(groupRepresentation.getId(), parseGroupName(groupRepresentation.getName()));
+        }
+        snapshot.groups.putAll(parse(groupRepresentations, snapshot.displayedNamesById));
+        catalogCache.put(CATALOG_KEY, snapshot);
+        lastKnown = snapshot;
+        log.debug("Group catalog refreshed with {} groups", groupRepresentations.size());
+        return snapshot;
+    }
+
+    private static HashMap<String, List<GroupDTO>> parse(List<GroupRepresentation> groupRepresentationList, Map<String, String> displayedNamesById) {
+        List<GroupDTO> oldGroups = new ArrayList<>();
+        List<GroupDTO> newGroups = new ArrayList<>();
+        HashMap<String, List<GroupDTO>> groups = new HashMap<>();
+
+        for (GroupRepresentation groupRepresentation : groupRepresentationList) {
+            String displayedName = displayedNamesById.get(groupRepresentation.getId());
+            if (displayedName == null) {
+                displayedName = parseGroupName(groupRepresentation.getName());
+            }
+            if (groupRepresentation.getName().contains(PREFIX)) {
+                oldGroups.add(new GroupDTO(groupRepresentation.getId(), displayedName));
+            } else {
+                newGroups.add(new GroupDTO(groupRepresentation.getId(), displayedName));
+            }
+        }
+        groups.put(OLD_ROLES, oldGroups);
+        groups.put(NEW_ROLES, newGroups);
+        return groups;
+    }
+
+    private static String parseGroupName(String groupName) {
+        String prefix = groupName.contains(PREFIX) ? PREFIX : "";
+        String rawGroupName = groupName.substring(groupName.indexOf(prefix) + prefix.length());
+        return WordUtils.capitalizeFully(String.join(" ", rawGroupName.split("_")));
+    }
+
+    private static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 2L;
+
+        private final HashMap<String, List<GroupDTO>> groups = new HashMap<>();
+        private final HashMap<String, String> idsByName = new HashMap<>();
+        private final HashMap<String, String> namesById = new HashMap<>();
+        private final HashMap<String, String> displayedNamesById = new HashMap<>();
+    }
+}
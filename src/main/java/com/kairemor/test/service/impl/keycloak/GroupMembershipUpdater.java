@@ -0,0 +1,66 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.config.ApplicationProperties;
+import org.keycloak.admin.client.resource.UserResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Moves a user from its current groups to a target set of groups.
+ * <p>
+ * Only the groups to leave and the groups to join are sent to Keycloak, concurrently on the {@code fanOutExecutor} with
+ * at most {@code application.fan-out.concurrency} calls in flight at any time.
+ */
+@Component
+public class GroupMembershipUpdater {
+
+    private final Logger log = LoggerFactory.getLogger(GroupMembershipUpdater.class);
+
+    private final BoundedExecutor boundedExecutor;
+
+    public GroupMembershipUpdater(@Qualifier("fanOutExecutor") Executor fanOutExecutor, ApplicationProperties applicationProperties) {
+        this.boundedExecutor = new BoundedExecutor(fanOutExecutor, applicationProperties.getFanOut().getConcurrency());
+    }
+
+    /**
+     * @param userResource user to update
+     * @param currentIds   ids of the groups the user belongs to
+     * @param targetIds    ids of the groups the user must belong to, left untouched
+     * @return the ids of the groups the user belongs to after the update
+     * @throws RuntimeException the first error thrown by Keycloak, once every call has completed
+     */
+    public Set<String> update(UserResource userResource, Collection<String> currentIds, Collection<String> targetIds) {
+        Set<String> target = new LinkedHashSet<>(targetIds);
+        Set<String> toLeave = new LinkedHashSet<>(currentIds);
+        toLeave.removeAll(target);
+        Set<String> toJoin = new LinkedHashSet<>(target);
+        toJoin.removeAll(currentIds);
+
+        List<CompletableFuture<Void>> calls = new ArrayList<>(toLeave.size() + toJoin.size());
+        for (String groupId : toLeave) {
+            calls.add(boundedExecutor.submit(() -> {
+                userResource.leaveGroup(groupId);
+                return null;
+            }));
+        }
+        for (String groupId : toJoin) {
+            calls.add(boundedExecutor.submit(() -> {
+                userResource.joinGroup(groupId);
+                return null;
+            }));
+        }
+        BoundedExecutor.await(CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])));
+        log.debug("Group membership updated: {} groups left, {} groups joined", toLeave.size(), toJoin.size());
+        return target;
+    }
+}
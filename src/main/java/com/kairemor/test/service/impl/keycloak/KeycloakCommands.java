@@ -0,0 +1,148 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.exception.KeycloakCreationException;
+import com.kairemor.test.exception.KeycloakForbiddenAction;
+import com.kairemor.test.exception.KeycloakUnavailableException;
+import com.kairemor.test.exception.KeycloakUserNotFoundException;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import org.keycloak.authorization.client.util.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import javax.ws.rs.ClientErrorException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the calls to Keycloak as Hystrix commands, one bulkhead and one circuit breaker per kind of call.
+ * <p>
+ * Each bulkhead is a semaphore on the calling thread: once its {@code maxConcurrentRequests} calls are in flight, or
+ * while its circuit is open, further calls fail fast with a {@link KeycloakUnavailableException} instead of blocking a
+ * servlet thread. The time spent in a call is bounded by the timeouts of the Keycloak HTTP clients. Settings can be
+ * overridden under {@code hystrix.command.<command key>}.
+ * <p>
+ * Errors caused by the request itself, such as wrong credentials or an unknown user, are rethrown as is and do not
+ * count against the circuit.
+ */
+@Component
+public class KeycloakCommands {
+
+    private static final HystrixCommandGroupKey GROUP_KEY = HystrixCommandGroupKey.Factory.asKey("Keycloak");
+
+    public enum Bulkhead {
+        SIGN_IN("KeycloakSignIn", 50),
+        REFRESH("KeycloakRefresh", 50),
+        ADMIN_READ("KeycloakAdminRead", 40),
+        ADMIN_WRITE("KeycloakAdminWrite", 20);
+
+        private final HystrixCommand.Setter setter;
+
+        Bulkhead(String commandKey, int maxConcurrentRequests) {
+            this.setter = HystrixCommand.Setter.withGroupKey(GROUP_KEY)
+                .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                    .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE)
+                    .withExecutionIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)
+                    .withFallbackIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)
+                    .withExecutionTimeoutEnabled(false));
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(KeycloakCommands.class);
+
+    /**
+     * @param bulkhead bulkhead of the call
+     * @param call     call to Keycloak
+     * @param <T>      result of the call
+     * @return the result of the call
+     * @throws KeycloakUnavailableException if the bulkhead is full or its circuit is open
+     */
+    public <T> T execute(Bulkhead bulkhead, Supplier<T> call) {
+        return execute(bulkhead, call, null);
+    }
+
+    /**
+     * @param bulkhead bulkhead of the call
+     * @param call     call to Keycloak
+     * @param fallback result used when the call fails or is not attempted, may throw to report no result
+     * @param <T>      result of the call
+     * @return the result of the call, or of the fallback
+     * @throws KeycloakUnavailableException if there is no result and the bulkhead is full or its circuit is open,
+     *                                      unless the fallback threw its own error, which is rethrown as is
+     */
+    public <T> T execute(Bulkhead bulkhead, Supplier<T> call, Supplier<T> fallback) {
+        try {
+            return new KeycloakCommand<>(bulkhead, call, fallback).execute();
+        } catch (HystrixBadRequestException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (HystrixRuntimeException e) {
+            // a fallback reporting no result has the last word, Hystrix signals a missing fallback the same way
+            if (e.getFallbackException() instanceof RuntimeException
+                && !(e.getFallbackException() instanceof UnsupportedOperationException)) {
+                throw (RuntimeException) e.getFallbackException();
+            }
+            if (e.getFailureType() == HystrixRuntimeException.FailureType.COMMAND_EXCEPTION
+                && e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            log.warn("Keycloak call {} not attempted: {}", bulkhead, e.getFailureType());
+            throw new KeycloakUnavailableException("Keycloak is unavailable, please retry later", e);
+        }
+    }
+
+    public void run(Bulkhead bulkhead, Runnable call) {
+        execute(bulkhead, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private static boolean isRequestError(RuntimeException e) {
+        // the authz client may wrap the error response of the token endpoint
+        Throwable responseError = e.getCause() instanceof HttpResponseException ? e.getCause() : e;
+        if (responseError instanceof HttpResponseException) {
+            return ((HttpResponseException) responseError).getStatusCode() < 500;
+        }
+        return e instanceof ClientErrorException
+            || e instanceof HttpClientErrorException
+            || e instanceof KeycloakCreationException
+            || e instanceof KeycloakForbiddenAction
+            || e instanceof KeycloakUserNotFoundException;
+    }
+
+    private static final class KeycloakCommand<T> extends HystrixCommand<T> {
+
+        private final Supplier<T> call;
+
+        private final Supplier<T> fallback;
+
+        private KeycloakCommand(Bulkhead bulkhead, Supplier<T> call, Supplier<T> fallback) {
+            super(bulkhead.setter);
+            this.call = call;
+            this.fallback = fallback;
+        }
+
+        @Override
+        protected T run() {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (isRequestError(e)) {
+                    throw new HystrixBadRequestException(e.getMessage(), e);
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        protected T getFallback() {
+            return fallback != null ? fallback.get() : super.getFallback();
+        }
+    }
+}
@@ -3,84 +3,74 @@ package com.kairemor.test.service.impl.keycloak;
 import com.kairemor.test.config.ApplicationProperties;
 import com.kairemor.test.properties.AccountServiceProperties;
 import com.kairemor.test.service.keycloak.KeycloakServiceInitializer;
-import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.authorization.client.AuthzClient;
 import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Service
 public class KeycloakServiceInitializerImpl implements KeycloakServiceInitializer {
     private final AccountServiceProperties accountServiceProperties;
     private final ApplicationProperties applicationProperties;
+    private final AuthzClientRegistry authzClientRegistry;
+    private final RealmResource realmResource;
+    private final UsersResource usersResource;
+    private final String tokenUrl;
+    private final MultiValueMap<String, String> refreshTokenConfig;
+    private final MultiValueMap<String, String> mobileRefreshTokenConfig;
 
-    public KeycloakServiceInitializerImpl(AccountServiceProperties accountServiceProperties, ApplicationProperties applicationProperties) {
+    public KeycloakServiceInitializerImpl(AccountServiceProperties accountServiceProperties, ApplicationProperties applicationProperties, Keycloak keycloakAdminClient, AuthzClientRegistry authzClientRegistry) {
         this.accountServiceProperties = accountServiceProperties;
         this.applicationProperties = applicationProperties;
+        this.authzClientRegistry = authzClientRegistry;
+        this.realmResource = keycloakAdminClient.realm(accountServiceProperties.getRealm());
+        this.usersResource = realmResource.users();
+        this.tokenUrl = accountServiceProperties.getIssuerUrl() + "/realms/" + accountServiceProperties.getRealm() + "/protocol/openid-connect/token";
+        this.refreshTokenConfig = buildRefreshTokenConfig(accountServiceProperties.getClientId(), accountServiceProperties.getClientSecret());
+        this.mobileRefreshTokenConfig = buildRefreshTokenConfig(applicationProperties.getKeycloak().getMobile().getResource(),
+            applicationProperties.getKeycloak().getMobile().getCredentials().getSecret());
     }
 
     public UsersResource getUsersResource() {
-        return org.keycloak.admin.client.KeycloakBuilder.builder()
-            .serverUrl(accountServiceProperties.getIssuerUrl())
-            .realm(accountServiceProperties.getRealm())
-            .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
-            .clientId(accountServiceProperties.getClientId())
-            .clientSecret(accountServiceProperties.getClientSecret())
-            .build()
-            .realm(accountServiceProperties.getRealm())
-            .users();
+        return usersResource;
     }
 
     public AuthzClient getAuthzClient(){
-        Map<String, Object> clientCredentials = new HashMap<>();
-        clientCredentials.put("secret", accountServiceProperties.getClientSecret());
-        clientCredentials.put("grant_type", "password");
-        return AuthzClient.create(new org.keycloak.authorization.client.Configuration(accountServiceProperties.getIssuerUrl(), accountServiceProperties.getRealm(), accountServiceProperties.getClientId(), clientCredentials, null));
+        return authzClientRegistry.getClient(accountServiceProperties.getIssuerUrl(), accountServiceProperties.getRealm(), accountServiceProperties.getClientId(), accountServiceProperties.getClientSecret());
     }
 
     @Override
     public AuthzClient getAuthzMobileClient() {
-        Map<String, Object> clientCredentials = new HashMap<>();
-        clientCredentials.put("secret", applicationProperties.getKeycloak().getMobile().getCredentials().getSecret());
-        clientCredentials.put("grant_type", "password");
-        return AuthzClient.create(new org.keycloak.authorization.client.Configuration(accountServiceProperties.getIssuerUrl(), accountServiceProperties.getRealm(), applicationProperties.getKeycloak().getMobile().getResource(), clientCredentials, null));
+        return authzClientRegistry.getClient(accountServiceProperties.getIssuerUrl(), accountServiceProperties.getRealm(), applicationProperties.getKeycloak().getMobile().getResource(), applicationProperties.getKeycloak().getMobile().getCredentials().getSecret());
     }
 
     public RealmResource getRealmResource(){
-        return org.keycloak.admin.client.KeycloakBuilder.builder()
-            .serverUrl(accountServiceProperties.getIssuerUrl())
-            .realm(accountServiceProperties.getRealm())
-            .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
-            .clientId(accountServiceProperties.getClientId())
-            .clientSecret(accountServiceProperties.getClientSecret())
-            .build()
-            .realm(accountServiceProperties.getRealm());
+        return realmResource;
+    }
+
+    public String getTokenUrl() {
+        return tokenUrl;
     }
 
     public MultiValueMap<String, String> getRefreshTokenConfig() {
-        String url = accountServiceProperties.getIssuerUrl() + "/realms/" + accountServiceProperties.getRealm() + "/protocol/openid-connect/token";
-        MultiValueMap<String, String> requestBody = new LinkedMultiValueMap<String, String>();
-        requestBody.add("url",url);
-        requestBody.add("grant_type", "refresh_token");
-        requestBody.add("client_id", accountServiceProperties.getClientId());
-        requestBody.add("client_secret", accountServiceProperties.getClientSecret());
-        return requestBody;
+        return refreshTokenConfig;
     }
 
     @Override
     public MultiValueMap<String, String> getMobileRefreshTokenConfig() {
-        String url = accountServiceProperties.getIssuerUrl() + "/realms/" + accountServiceProperties.getRealm() + "/protocol/openid-connect/token";
-        MultiValueMap<String, String> requestBody = new LinkedMultiValueMap<String, String>();
-        requestBody.add("url",url);
+        return mobileRefreshTokenConfig;
+    }
+
+    private static MultiValueMap<String, String> buildRefreshTokenConfig(String clientId, String clientSecret) {
+        MultiValueMap<String, String> requestBody = new LinkedMultiValueMap<>();
         requestBody.add("grant_type", "refresh_token");
-        requestBody.add("client_id", applicationProperties.getKeycloak().getMobile().getResource());
-        requestBody.add("client_secret", applicationProperties.getKeycloak().getMobile().getCredentials().getSecret());
-        return requestBody;
+        requestBody.add("client_id", clientId);
+        requestBody.add("client_secret", clientSecret);
+        return CollectionUtils.unmodifiableMultiValueMap(requestBody);
     }
 
 }
@@ -0,0 +1,61 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.keycloak.representations.AccessTokenResponse;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Calls the realm token endpoint through the shared, pooled {@code keycloakTokenRestTemplate}.
+ */
+@Component
+public class KeycloakTokenClient {
+
+    private static final String TIMER_NAME = "keycloak.token.requests";
+
+    private final RestTemplate keycloakTokenRestTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    public KeycloakTokenClient(RestTemplate keycloakTokenRestTemplate, MeterRegistry meterRegistry) {
+        this.keycloakTokenRestTemplate = keycloakTokenRestTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Exchange a refresh token for a new access token.
+     *
+     * @param tokenUrl     token endpoint of the realm
+     * @param clientForm   immutable form parameters of the client (grant type and client credentials)
+     * @param refreshToken refresh token to exchange
+     * @return AccessTokenResponse
+     */
+    public AccessTokenResponse refreshToken(String tokenUrl, MultiValueMap<String, String> clientForm, String refreshToken) {
+        MultiValueMap<String, String> requestBody = new LinkedMultiValueMap<>(clientForm);
+        requestBody.set("refresh_token", refreshToken);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(requestBody, headers);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            AccessTokenResponse response = keycloakTokenRestTemplate.postForEntity(tokenUrl, request, AccessTokenResponse.class).getBody();
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME)
+                .description("Requests sent to the Keycloak token endpoint")
+                .tag("grant", "refresh_token")
+                .tag("client", String.valueOf(clientForm.getFirst("client_id")))
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        }
+    }
+}
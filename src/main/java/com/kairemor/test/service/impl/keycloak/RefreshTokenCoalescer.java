@@ -0,0 +1,152 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.kairemor.test.config.ApplicationProperties;
+import org.keycloak.representations.AccessTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent refreshes of the same refresh token, such as the ones sent by several tabs of a browser,
+ * into a single Keycloak exchange.
+ * <p>
+ * Requests are keyed by a SHA-256 hash of the client and the refresh token. On a node, concurrent requests wait for
+ * the one in flight. Across nodes, the exchange is made under a lock of the {@link #REFRESH_RESPONSES_CACHE} map and
+ * its response is kept there for {@code application.cache.refresh-responses.time-to-live-seconds}, so the requests
+ * arriving meanwhile on any node get the same tokens instead of failing on the rotated refresh token.
+ * The lock is leased for {@code application.cache.refresh-responses.lock-lease-millis}, well above the read timeout of
+ * the token client, so it is not released while the exchange may still succeed. Failed exchanges are not kept.
+ */
+@Component
+public class RefreshTokenCoalescer {
+
+    public static final String REFRESH_RESPONSES_CACHE = "keycloakRefreshResponses";
+
+    private final Logger log = LoggerFactory.getLogger(RefreshTokenCoalescer.class);
+
+    private final ConcurrentHashMap<String, CompletableFuture<AccessTokenResponse>> inFlightByKey = new ConcurrentHashMap<>();
+
+    private final IMap<String, String> responses;
+
+    private final ObjectMapper objectMapper;
+
+    private final int graceSeconds;
+
+    private final long lockWaitMillis;
+
+    private final long lockLeaseMillis;
+
+    public RefreshTokenCoalescer(HazelcastInstance hazelcastInstance, ObjectMapper objectMapper, ApplicationProperties applicationProperties) {
+        this.responses = hazelcastInstance.getMap(REFRESH_RESPONSES_CACHE);
+        this.objectMapper = objectMapper;
+        this.graceSeconds = applicationProperties.getCache().getRefreshResponses().getTimeToLiveSeconds();
+        this.lockWaitMillis = applicationProperties.getCache().getRefreshResponses().getLockWaitMillis();
+        this.lockLeaseMillis = applicationProperties.getCache().getRefreshResponses().getLockLeaseMillis();
+    }
+
+    /**
+     * @param clientId     client the refresh token was issued to
+     * @param refreshToken refresh token to exchange
+     * @param exchange     exchange of the refresh token with Keycloak
+     * @return the tokens returned by the exchange, possibly made by another request
+     */
+    public AccessTokenResponse refresh(String clientId, String refreshToken, Supplier<AccessTokenResponse> exchange) {
+        String key = hash(clientId, refreshToken);
+        CompletableFuture<AccessTokenResponse> refresh = new CompletableFuture<>();
+        CompletableFuture<AccessTokenResponse> inFlight = inFlightByKey.putIfAbsent(key, refresh);
+        if (inFlight != null) {
+            log.debug("Joining in flight token refresh");
+            return BoundedExecutor.await(inFlight);
+        }
+        try {
+            AccessTokenResponse response = refreshInCluster(key, exchange);
+            refresh.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightByKey.remove(key, refresh);
+        }
+    }
+
+    private AccessTokenResponse refreshInCluster(String key, Supplier<AccessTokenResponse> exchange) {
+        String known = responses.get(key);
+        if (known != null) {
+            return read(known);
+        }
+        boolean locked;
+        try {
+            locked = responses.tryLock(key, lockWaitMillis, TimeUnit.MILLISECONDS, lockLeaseMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        if (!locked) {
+            log.debug("Could not coordinate token refresh with the cluster, refreshing anyway");
+            return exchange.get();
+        }
+        try {
+            known = responses.get(key);
+            if (known != null) {
+                return read(known);
+            }
+            AccessTokenResponse response = exchange.get();
+            responses.set(key, write(response), graceSeconds, TimeUnit.SECONDS);
+            return response;
+        } finally {
+            unlock(key);
+        }
+    }
+
+    private void unlock(String key) {
+        try {
+            responses.unlock(key);
+        } catch (IllegalMonitorStateException e) {
+            // the lease expired during a slow exchange, the lock is already released
+            log.debug("Token refresh lock released before the end of the exchange");
+        }
+    }
+
+    private AccessTokenResponse read(String response) {
+        try {
+            return objectMapper.readValue(response, AccessTokenResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String write(AccessTokenResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(String clientId, String refreshToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(clientId).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(refreshToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.properties.AccountServiceProperties;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.token.TokenManager;
+import org.keycloak.jose.jws.JWSInput;
+import org.keycloak.jose.jws.JWSInputException;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.AccessTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the service account token of the admin client fresh.
+ * <p>
+ * The admin client authenticates every request with the token held by its {@link TokenManager}, which only
+ * fetches a new one once the current one is about to expire, on the request path. This component renews the
+ * token in the background shortly before expiry so admin calls always find a valid cached token.
+ * Every fetch goes through the {@link TokenManager} lock, so concurrent callers never trigger a duplicate grant.
+ */
+@Component
+public class ServiceAccountTokenManager {
+
+    private final Logger log = LoggerFactory.getLogger(ServiceAccountTokenManager.class);
+
+    private final TokenManager tokenManager;
+
+    private final long refreshSkewMillis;
+
+    public ServiceAccountTokenManager(Keycloak keycloakAdminClient, AccountServiceProperties accountServiceProperties) {
+        this.tokenManager = keycloakAdminClient.tokenManager();
+        this.refreshSkewMillis = accountServiceProperties.getServiceAccountRefreshSkewSeconds() * 1000;
+    }
+
+    /**
+     * Renew the service account token when it expires within the configured skew.
+     */
+    @Scheduled(fixedDelayString = "${account-service.service-account.refresh-check-millis:10000}")
+    public void refreshIfExpiring() {
+        try {
+            AccessTokenResponse current = tokenManager.getAccessToken();
+            long expiresAt = readExpiration(current.getToken());
+            if (expiresAt - System.currentTimeMillis() <= refreshSkewMillis) {
+                log.debug("Renewing service account token");
+                tokenManager.grantToken();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew service account token: {}", e.getMessage());
+        }
+    }
+
+    private long readExpiration(String token) {
+        try {
+            Long exp = new JWSInput(token).readJsonContent(AccessToken.class).getExp();
+            return exp == null ? Long.MAX_VALUE : exp * 1000;
+        } catch (JWSInputException e) {
+            log.debug("Service account token is not a readable JWT, renewing it. Nested error: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
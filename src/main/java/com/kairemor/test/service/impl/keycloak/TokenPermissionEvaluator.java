@@ -0,0 +1,166 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.service.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Evaluates the permissions of the current user from the realm roles of its Keycloak access token.
+ * <p>
+ * A realm role {@code <PREFIX>_<PERMISSION>} grants {@code <PERMISSION>}, compared case-insensitively. The
+ * permissions of a token are computed once and kept by token id until the token expires, or at most
+ * {@code application.cache.token-permissions.time-to-live-seconds}. The least recently used tokens are evicted once
+ * {@code application.cache.token-permissions.max-size} are kept.
+ * <p>
+ * Permissions read from Keycloak for other authentications are kept by user id for the same time, as the last known
+ * permissions to use while Keycloak is unavailable.
+ */
+@Component
+public class TokenPermissionEvaluator {
+
+    private static final String REALM_ACCESS_CLAIM = "realm_access";
+
+    private static final String ROLES_KEY = "roles";
+
+    private final Logger log = LoggerFactory.getLogger(TokenPermissionEvaluator.class);
+
+    private final LruCache<String, TokenPermissions> permissionsByTokenId;
+
+    private final LruCache<String, TokenPermissions> permissionsByUserId;
+
+    private final long timeToLiveMillis;
+
+    public TokenPermissionEvaluator(ApplicationProperties applicationProperties) {
+        ApplicationProperties.CacheSettings settings = applicationProperties.getCache().getTokenPermissions();
+        this.timeToLiveMillis = settings.getTimeToLiveSeconds() * 1000L;
+        this.permissionsByTokenId = new LruCache<>(settings.getMaxSize());
+        this.permissionsByUserId = new LruCache<>(settings.getMaxSize());
+    }
+
+    /**
+     * @return the permissions of the current user, empty if the current authentication carries no realm roles
+     */
+    public Optional<Set<String>> getCurrentPermissions() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!(authentication instanceof JwtAuthenticationToken)) {
+            return Optional.empty();
+        }
+        Jwt jwt = ((JwtAuthenticationToken) authentication).getToken();
+        String tokenId = jwt.getId();
+        long now = System.currentTimeMillis();
+        if (tokenId != null) {
+            TokenPermissions cached = permissionsByTokenId.get(tokenId);
+            if (cached != null && cached.expiresAt > now) {
+                return Optional.of(cached.permissions);
+            }
+        }
+        Map<String, Object> realmAccess = jwt.getClaimAsMap(REALM_ACCESS_CLAIM);
+        if (realmAccess == null || !(realmAccess.get(ROLES_KEY) instanceof Collection)) {
+            return Optional.empty();
+        }
+        Set<String> permissions = toPermissions((Collection<?>) realmAccess.get(ROLES_KEY));
+        if (tokenId != null) {
+            permissionsByTokenId.put(tokenId, new TokenPermissions(permissions, expiresAt(jwt.getExpiresAt(), now)));
+        }
+        return Optional.of(permissions);
+    }
+
+    /**
+     * @param userId      Keycloak id of a user
+     * @param permissions permissions of the user read from Keycloak
+     */
+    public void rememberUserPermissions(String userId, Set<String> permissions) {
+        permissionsByUserId.put(userId, new TokenPermissions(permissions, System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    /**
+     * @param userId Keycloak id of a user
+     * @return the permissions last read from Keycloak for the user, empty if unknown or expired
+     */
+    public Optional<Set<String>> getLastKnownUserPermissions(String userId) {
+        TokenPermissions known = permissionsByUserId.get(userId);
+        if (known == null || known.expiresAt <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(known.permissions);
+    }
+
+    /**
+     * @param permission permission to check, in any case
+     * @param permissions permissions computed by {@link #toPermissions(Collection)}
+     * @return true if the permission is granted
+     */
+    public static boolean isGranted(String permission, Set<String> permissions) {
+        return permission != null && permissions.contains(permission.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param roles names of realm roles
+     * @return the lower-cased permissions granted by the roles
+     */
+    public static Set<String> toPermissions(Collection<?> roles) {
+        Set<String> permissions = new HashSet<>();
+        for (Object role : roles) {
+            String permission = toPermission(String.valueOf(role));
+            if (permission != null) {
+                permissions.add(permission);
+            }
+        }
+        return Collections.unmodifiableSet(permissions);
+    }
+
+    private static String toPermission(String role) {
+        int end = role.length();
+        // String.split("_") drops trailing empty segments
+        while (end > 0 && role.charAt(end - 1) == '_') {
+            end--;
+        }
+        int separator = role.indexOf('_');
+        if (separator < 0 || separator >= end) {
+            return null;
+        }
+        return role.substring(separator + 1, end).toLowerCase(Locale.ROOT);
+    }
+
+    @Scheduled(fixedDelayString = "${application.cache.token-permissions.purge-millis:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = permissionsByTokenId.size() + permissionsByUserId.size();
+        permissionsByTokenId.removeIf(tokenPermissions -> tokenPermissions.expiresAt <= now);
+        permissionsByUserId.removeIf(userPermissions -> userPermissions.expiresAt <= now);
+        log.trace("Purged {} expired permissions", before - permissionsByTokenId.size() - permissionsByUserId.size());
+    }
+
+    private long expiresAt(Instant tokenExpiresAt, long now) {
+        long maxExpiresAt = now + timeToLiveMillis;
+        return tokenExpiresAt == null ? maxExpiresAt : Math.min(tokenExpiresAt.toEpochMilli(), maxExpiresAt);
+    }
+
+    private static final class TokenPermissions {
+
+        private final Set<String> permissions;
+
+        private final long expiresAt;
+
+        private TokenPermissions(Set<String> permissions, long expiresAt) {
+            this.permissions = permissions;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
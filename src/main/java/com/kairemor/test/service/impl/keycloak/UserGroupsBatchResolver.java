@@ -0,0 +1,87 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.service.dto.GroupDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Loads the groups of many users concurrently on the {@code fanOutExecutor}.
+ * <p>
+ * Repeated ids are loaded once, at most {@code application.fan-out.concurrency} loads are in flight at any time and
+ * the whole batch has {@code application.fan-out.call-timeout-millis} to complete. A user whose load fails or is
+ * still pending at that deadline gets empty groups instead of failing the whole batch, and the loads not started yet
+ * are cancelled.
+ */
+@Component
+public class UserGroupsBatchResolver {
+
+    private final Logger log = LoggerFactory.getLogger(UserGroupsBatchResolver.class);
+
+    private final BoundedExecutor boundedExecutor;
+
+    private final long callTimeoutMillis;
+
+    public UserGroupsBatchResolver(@Qualifier("fanOutExecutor") Executor fanOutExecutor, ApplicationProperties applicationProperties) {
+        this.boundedExecutor = new BoundedExecutor(fanOutExecutor, applicationProperties.getFanOut().getConcurrency());
+        this.callTimeoutMillis = applicationProperties.getFanOut().getCallTimeoutMillis();
+    }
+
+    /**
+     * @param usersId     ids of the users, possibly repeated
+     * @param groupLoader loads the groups of one user
+     * @return the groups of each distinct user id, in the order of the ids
+     */
+    public Map<String, HashMap<String, List<GroupDTO>>> resolve(String[] usersId, Function<String, HashMap<String, List<GroupDTO>>> groupLoader) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis);
+        Map<String, CompletableFuture<HashMap<String, List<GroupDTO>>>> futures = new LinkedHashMap<>();
+        for (String userId : usersId) {
+            if (!futures.containsKey(userId)) {
+                futures.put(userId, boundedExecutor.trySubmit(() -> groupLoader.apply(userId), remainingNanos(deadline), TimeUnit.NANOSECONDS));
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Groups of {} users not all loaded within {} ms", futures.size(), callTimeoutMillis);
+        } catch (ExecutionException e) {
+            // the failed users are reported below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Map<String, HashMap<String, List<GroupDTO>>> usersGroups = new LinkedHashMap<>();
+        futures.forEach((userId, future) -> usersGroups.put(userId, resultOf(userId, future)));
+        return usersGroups;
+    }
+
+    private HashMap<String, List<GroupDTO>> resultOf(String userId, CompletableFuture<HashMap<String, List<GroupDTO>>> future) {
+        if (future.cancel(false)) {
+            // still pending at the deadline, the load does not run if it has not started yet
+            return new HashMap<>();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            log.warn("Groups of user {} not loaded. Nested error :{}", userId, e.getCause().getMessage());
+        }
+        return new HashMap<>();
+    }
+
+    private static long remainingNanos(long deadline) {
+        return deadline - System.nanoTime();
+    }
+}
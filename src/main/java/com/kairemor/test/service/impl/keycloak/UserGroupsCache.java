@@ -0,0 +1,47 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.service.dto.GroupDTO;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Groups of each user, as returned to the clients, kept in the {@link #USER_GROUPS_CACHE} cache so that reading the
+ * groups of a user does not call Keycloak every time.
+ * <p>
+ * Every node reads the entries from a near cache. Entries expire after
+ * {@code application.cache.user-groups.time-to-live-seconds}, are replaced as soon as the groups of a user are changed
+ * through this service, and evicted when such a change fails part way.
+ */
+@Component
+public class UserGroupsCache {
+
+    public static final String USER_GROUPS_CACHE = "keycloakUserGroups";
+
+    private final Cache userGroupsCache;
+
+    public UserGroupsCache(CacheManager cacheManager) {
+        this.userGroupsCache = Objects.requireNonNull(cacheManager.getCache(USER_GROUPS_CACHE), "Unable to find cache " + USER_GROUPS_CACHE);
+    }
+
+    /**
+     * @param userId Keycloak id of the user
+     * @return the groups of the user, null if they are not cached
+     */
+    @SuppressWarnings("unchecked")
+    public HashMap<String, List<GroupDTO>> get(String userId) {
+        return userGroupsCache.get(userId, HashMap.class);
+    }
+
+    public void put(String userId, HashMap<String, List<GroupDTO>> userGroups) {
+        userGroupsCache.put(userId, userGroups);
+    }
+
+    public void evict(String userId) {
+        userGroupsCache.evict(userId);
+    }
+}
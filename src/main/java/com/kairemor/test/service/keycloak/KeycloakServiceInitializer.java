@@ -14,6 +14,8 @@ public interface KeycloakServiceInitializer {
 
     RealmResource getRealmResource();
 
+    String getTokenUrl();
+
     MultiValueMap<String, String> getRefreshTokenConfig();
 
     MultiValueMap<String, String> getMobileRefreshTokenConfig();
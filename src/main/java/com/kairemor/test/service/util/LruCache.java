@@ -0,0 +1,164 @@
+package com.kairemor.test.service.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Map holding at most about {@code maxSize} entries, evicting the least recently used entry when full.
+ * <p>
+ * It is split in segments, each locked and evicting on its own, so threads rarely wait on each other. A max size of 0
+ * disables the cache: nothing is kept.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class LruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize) {
+        if (maxSize > 0) {
+            int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+            this.segments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment<>(segmentSize);
+            }
+        } else {
+            this.segments = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return segments != null;
+    }
+
+    /**
+     * @param key a key
+     * @return the value of the key, null if absent
+     */
+    public V get(K key) {
+        if (segments == null) {
+            return null;
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        if (segments == null) {
+            return;
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * @param key      a key
+     * @param function computes the value of an absent key, called under the lock of a segment
+     * @return the value of the key, computed if absent, not kept when the cache is disabled
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        if (segments == null) {
+            return function.apply(key);
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.computeIfAbsent(key, function);
+        }
+    }
+
+    /**
+     * @param key       a key
+     * @param condition condition on the value of the key for it to be removed
+     */
+    public void remove(K key, Predicate<? super V> condition) {
+        if (segments == null) {
+            return;
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            V value = segment.get(key);
+            if (value != null && condition.test(value)) {
+                segment.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param condition condition on a value for its entry to be removed
+     */
+    public void removeIf(Predicate<? super V> condition) {
+        if (segments == null) {
+            return;
+        }
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.values().removeIf(condition);
+            }
+        }
+    }
+
+    /**
+     * @param action called with each entry, outside of the locks of the segments
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (segments == null) {
+            return;
+        }
+        for (Segment<K, V> segment : segments) {
+            List<Map.Entry<K, V>> entries;
+            synchronized (segment) {
+                entries = new ArrayList<>(segment.size());
+                segment.forEach((key, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+            }
+            entries.forEach(entry -> action.accept(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    public int size() {
+        if (segments == null) {
+            return 0;
+        }
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segment(K key) {
+        return segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENTS];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -1,29 +1,52 @@
 package com.kairemor.test.web.rest;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.kairemor.test.service.UserService;
+import com.kairemor.test.service.dto.GroupMemberDTO;
 import com.kairemor.test.service.dto.UserDTO;
 import com.kairemor.test.service.dto.UserLogDTO;
+import com.kairemor.test.web.rest.util.ClientIpResolver;
 import org.keycloak.authorization.client.util.HttpResponseException;
 import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api")
 public class UserResource {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String REFRESH_TOKEN_COOKIE = "refresh_token";
+    private static final String MOBILE_REFRESH_TOKEN_COOKIE = "mobile_refresh_token";
     private final Logger log = LoggerFactory.getLogger(UserResource.class);
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ClientIpResolver clientIpResolver;
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
-    public UserResource(UserService userService) {
+    public UserResource(UserService userService, ObjectMapper objectMapper, ClientIpResolver clientIpResolver) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.clientIpResolver = clientIpResolver;
     }
 
     /**
@@ -50,18 +73,134 @@ public class UserResource {
     }
 
     /**
+     * Create users with password hashed with bcrypt from a newline-delimited JSON stream.
+     * Users are read as they are processed and the log of each user is written back as soon as it is available,
+     * one JSON document per line, in the order of the request.
+     *
+     * @param request  request whose body holds one UserDTO per line
+     * @param response response receiving one UserLogDTO per line
+     * @throws IOException if the request can not be read or the response can not be written
+     */
+    @PostMapping(path = "/register-users/stream", consumes = APPLICATION_NDJSON_VALUE)
+    public void createUsersWithHashedPasswordStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        ObjectWriter userLogWriter = objectMapper.writerFor(UserLogDTO.class).without(SerializationFeature.INDENT_OUTPUT);
+        try (MappingIterator<UserDTO> users = objectMapper.readerFor(UserDTO.class).readValues(request.getInputStream())) {
+            userService.createUsersWithHashedPassword(users, userLog -> {
+                try {
+                    outputStream.write(userLogWriter.writeValueAsBytes(userLog));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Streamed user registration interrupted: {}", e.getMessage());
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Import users with password hashed with bcrypt through the keycloak partial import API
+     *
+     * @param users  Users to import
+     * @param policy What to do with users already present, SKIP or OVERWRITE
+     * @return The result of each import
+     */
+    @PostMapping("/import-users")
+    public List<UserLogDTO> importUsersWithHashedPassword(@RequestBody List<UserDTO> users,
+                                                          @RequestParam(defaultValue = "SKIP") PartialImportRepresentation.Policy policy) {
+        return userService.importUsersWithHashedPassword(users, policy);
+    }
+
+    /**
+     * Stream the members of a group as newline-delimited JSON, each page of members sent to the client as soon as it is
+     * fetched from keycloak.
+     * A client reads a large group by calling again with {@code first} moved past the members already read, until
+     * fewer than {@code max} members are returned.
+     *
+     * @param groupName name of the group
+     * @param first     position of the first member to return
+     * @param max       maximum number of members to return, all the remaining members if absent
+     * @param response  response receiving one GroupMemberDTO per line
+     * @throws IOException if the response can not be written
+     */
+    @GetMapping(path = "/groups/{groupName}/members", produces = APPLICATION_NDJSON_VALUE)
+    public void getUsersByGroup(@PathVariable String groupName, @RequestParam(defaultValue = "0") int first,
+                                @RequestParam(required = false) Integer max, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        ObjectWriter memberWriter = objectMapper.writerFor(GroupMemberDTO.class).without(SerializationFeature.INDENT_OUTPUT);
+        try {
+            int read = userService.getUsersByGroup(groupName, first, max, member -> {
+                try {
+                    outputStream.write(memberWriter.writeValueAsBytes(member));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, () -> {
+                try {
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.debug("Streamed {} members of group {}", read, groupName);
+        } catch (UncheckedIOException e) {
+            log.warn("Streamed group members interrupted: {}", e.getMessage());
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The keycloak exchange runs on the authentication executor, the servlet thread is released meanwhile.
+     * Too many attempts for the login or from the client are rejected with a 429.
+     *
      * @param userDTO
+     * @param request request of the client
      * @return ResponseEntity containing the Response and the status
      */
     @PostMapping(path = "/signin")
-    public ResponseEntity<?> signIn(@RequestBody UserDTO userDTO) {
-        AccessTokenResponse accessToken;
-        try {
-            accessToken = userService.signIn(userDTO);
-        } catch (HttpResponseException e) {
-            return new ResponseEntity("Authentication Failed, Wrong credentials", HttpStatus.UNAUTHORIZED);
-        }
-        return ResponseEntity.ok(accessToken);
+    public CompletableFuture<ResponseEntity<?>> signIn(@RequestBody UserDTO userDTO, HttpServletRequest request) {
+        return userService.signInAsync(userDTO, clientIpResolver.resolve(request))
+            .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (cause instanceof HttpResponseException) {
+                    return new ResponseEntity<>("Authentication Failed, Wrong credentials", HttpStatus.UNAUTHORIZED);
+                }
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            });
+    }
+
+    /**
+     * Renew the tokens from the refresh token cookie and set the new refresh token cookie.
+     * The keycloak exchange runs on the authentication executor, the servlet thread is released meanwhile.
+     *
+     * @param refreshToken current refresh token
+     * @return ResponseEntity containing the new tokens
+     */
+    @PostMapping(path = "/refresh-token")
+    public CompletableFuture<ResponseEntity<AccessTokenResponse>> refreshToken(@CookieValue(REFRESH_TOKEN_COOKIE) String refreshToken) {
+        return userService.refreshTokenAsync(refreshToken)
+            .thenApply(accessTokenResponse -> withRefreshTokenCookie(REFRESH_TOKEN_COOKIE, accessTokenResponse));
+    }
+
+    @PostMapping(path = "/mobile/refresh-token")
+    public CompletableFuture<ResponseEntity<AccessTokenResponse>> mobileRefreshToken(@CookieValue(MOBILE_REFRESH_TOKEN_COOKIE) String refreshToken) {
+        return userService.mobileRefreshTokenAsync(refreshToken)
+            .thenApply(accessTokenResponse -> withRefreshTokenCookie(MOBILE_REFRESH_TOKEN_COOKIE, accessTokenResponse));
+    }
+
+    private ResponseEntity<AccessTokenResponse> withRefreshTokenCookie(String refreshTokenName, AccessTokenResponse accessTokenResponse) {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.SET_COOKIE, userService.buildRefreshTokenCookie(refreshTokenName, accessTokenResponse).toString())
+            .body(accessTokenResponse);
     }
 
     @GetMapping(path = "/logOut")
@@ -0,0 +1,60 @@
+package com.kairemor.test.web.rest.util;
+
+import com.kairemor.test.config.ApplicationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the address of the client of a request behind the load balancer.
+ * <p>
+ * The {@code X-Forwarded-For} header is only read when the request comes from a proxy matching
+ * {@code application.login-throttle.trusted-proxies}. Its addresses are read from the last one, appended by the
+ * nearest proxy, and the first one not matching the trusted proxies is the client: the addresses before it may be
+ * forged by the client. Undertow trusts the header from anyone, so it is not enabled server wide.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final Pattern trustedProxies;
+
+    public ClientIpResolver(ApplicationProperties applicationProperties) {
+        String trustedProxies = applicationProperties.getLoginThrottle().getTrustedProxies();
+        this.trustedProxies = StringUtils.hasText(trustedProxies) ? Pattern.compile(trustedProxies) : null;
+    }
+
+    /**
+     * @param request a request
+     * @return the address of the client that sent the request
+     */
+    public String resolve(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!isTrusted(address)) {
+            return address;
+        }
+        String forwardedFor = request.getHeader(X_FORWARDED_FOR);
+        if (!StringUtils.hasText(forwardedFor)) {
+            return address;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            address = hop;
+            if (!isTrusted(address)) {
+                return address;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrusted(String address) {
+        return trustedProxies != null && address != null && trustedProxies.matcher(address).matches();
+    }
+}
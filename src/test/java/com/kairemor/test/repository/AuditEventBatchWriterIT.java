@@ -0,0 +1,151 @@
+package com.kairemor.test.repository;
+
+import com.kairemor.test.AccountserviceApp;
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.domain.PersistentAuditEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link AuditEventBatchWriter}.
+ */
+@SpringBootTest(classes = AccountserviceApp.class)
+public class AuditEventBatchWriterIT {
+
+    private static final int BATCH_SIZE = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ApplicationProperties applicationProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getAuditEvents().setQueueCapacity(16);
+        // only full batches and the stop write the events
+        applicationProperties.getAuditEvents().setFlushIntervalMillis(60000);
+        meterRegistry = new SimpleMeterRegistry();
+        deleteAuditEvents();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleteAuditEvents();
+    }
+
+    @Test
+    public void testQueuedEventsAreWrittenInBatchesAndDrainedOnStop() throws Exception {
+        AuditEventBatchWriter writer = newWriter();
+        writer.start();
+        for (int i = 0; i < 7; i++) {
+            assertThat(writer.enqueue(event("user-" + i, i % 2 == 1))).isTrue();
+        }
+        writer.stop();
+
+        assertThat(countRows("jhi_persistent_audit_event")).isEqualTo(7);
+        assertThat(countRows("jhi_persistent_audit_evt_data")).isEqualTo(8);
+        // every data row is keyed by the generated id of its own event
+        assertThat(jdbcTemplate.queryForObject("select count(*) from jhi_persistent_audit_evt_data d"
+            + " join jhi_persistent_audit_event e on e.event_id = d.event_id where d.value = e.principal", Integer.class)).isEqualTo(8);
+        assertThat(counter("audit.events.written", null)).isEqualTo(7);
+        assertThat(counter("audit.events.dropped", "overflow")).isEqualTo(0);
+        assertThat(counter("audit.events.dropped", "failure")).isEqualTo(0);
+    }
+
+    @Test
+    public void testEventsAreDroppedWhenTheQueueIsFull() throws Exception {
+        applicationProperties.getAuditEvents().setQueueCapacity(4);
+        AuditEventBatchWriter writer = newWriter();
+        for (int i = 0; i < 6; i++) {
+            writer.enqueue(event("user-" + i, false));
+        }
+        writer.start();
+        writer.stop();
+
+        assertThat(countRows("jhi_persistent_audit_event")).isEqualTo(4);
+        assertThat(counter("audit.events.written", null)).isEqualTo(4);
+        assertThat(counter("audit.events.dropped", "overflow")).isEqualTo(2);
+    }
+
+    @Test
+    public void testBlockPolicyDropsOnlyAfterTheTimeout() throws Exception {
+        applicationProperties.getAuditEvents().setQueueCapacity(4);
+        applicationProperties.getAuditEvents().setOverflowPolicy(ApplicationProperties.AuditEvents.OverflowPolicy.BLOCK);
+        applicationProperties.getAuditEvents().setBlockTimeoutMillis(50);
+        AuditEventBatchWriter stoppedWriter = newWriter();
+        for (int i = 0; i < 4; i++) {
+            assertThat(stoppedWriter.enqueue(event("user-" + i, false))).isTrue();
+        }
+        long start = System.nanoTime();
+        assertThat(stoppedWriter.enqueue(event("user-4", false))).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000L);
+        assertThat(counter("audit.events.dropped", "overflow")).isEqualTo(1);
+
+        // with the writer running, a blocked event waits for the queue to be drained
+        applicationProperties.getAuditEvents().setBlockTimeoutMillis(5000);
+        AuditEventBatchWriter writer = newWriter();
+        writer.start();
+        for (int i = 0; i < 10; i++) {
+            assertThat(writer.enqueue(event("user-" + i, false))).isTrue();
+        }
+        writer.stop();
+
+        assertThat(countRows("jhi_persistent_audit_event")).isEqualTo(10);
+        assertThat(counter("audit.events.written", null)).isEqualTo(10);
+        assertThat(counter("audit.events.dropped", "overflow")).isEqualTo(1);
+    }
+
+    private AuditEventBatchWriter newWriter() {
+        return new AuditEventBatchWriter(jdbcTemplate, transactionManager, applicationProperties, meterRegistry, BATCH_SIZE);
+    }
+
+    private static PersistentAuditEvent event(String principal, boolean withData) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal(principal);
+        event.setAuditEventDate(Instant.now());
+        event.setAuditEventType("AUTHENTICATION_SUCCESS");
+        if (withData) {
+            Map<String, String> data = new HashMap<>();
+            data.put("remoteAddress", principal);
+            data.put("sessionId", principal);
+            event.setData(data);
+        }
+        return event;
+    }
+
+    private int countRows(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private double counter(String name, String reason) {
+        return reason == null
+            ? meterRegistry.get(name).counter().count()
+            : meterRegistry.get(name).tag("reason", reason).counter().count();
+    }
+
+    private void deleteAuditEvents() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from jhi_persistent_audit_evt_data");
+            jdbcTemplate.update("delete from jhi_persistent_audit_event");
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.kairemor.test.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlidingWindowCounterTest {
+
+    private static final long WINDOW = 60000;
+
+    @Test
+    public void testCountsEachKey() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 1000);
+        long now = 10 * WINDOW;
+        for (int i = 0; i < 3; i++) {
+            counter.increment("john", now);
+        }
+        counter.increment("jane", now);
+
+        assertThat(counter.estimate("john", now)).isEqualTo(3);
+        assertThat(counter.estimate("jane", now)).isEqualTo(1);
+        assertThat(counter.estimate("nobody", now)).isZero();
+    }
+
+    @Test
+    public void testKeysWithTheSameHashCodeAreCountedApart() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 1000);
+        long now = 10 * WINDOW;
+        for (int i = 0; i < 10; i++) {
+            counter.increment("Aa", now);
+        }
+
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        assertThat(counter.estimate("BB", now)).isZero();
+    }
+
+    @Test
+    public void testSprayOfDistinctKeysDoesNotCountForOtherKeys() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 100000);
+        long now = 10 * WINDOW;
+        for (int i = 0; i < 50000; i++) {
+            counter.increment("sprayed-" + i, now);
+        }
+        counter.increment("john", now);
+
+        assertThat(counter.estimate("john", now)).isEqualTo(1);
+    }
+
+    @Test
+    public void testPreviousWindowFadesOut() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 1000);
+        long start = 10 * WINDOW;
+        for (int i = 0; i < 10; i++) {
+            counter.increment("john", start);
+        }
+
+        assertThat(counter.estimate("john", start + WINDOW)).isEqualTo(10);
+        assertThat(counter.estimate("john", start + WINDOW + WINDOW / 2)).isEqualTo(5);
+        assertThat(counter.estimate("john", start + 2 * WINDOW)).isZero();
+    }
+
+    @Test
+    public void testRemoteCountsAreAdded() {
+        SlidingWindowCounter local = new SlidingWindowCounter(WINDOW, 1000);
+        SlidingWindowCounter remote = new SlidingWindowCounter(WINDOW, 1000);
+        long now = 10 * WINDOW;
+        local.increment("john", now);
+        remote.increment("john", now);
+        remote.increment("john", now);
+        remote.increment("jane", now);
+
+        long window = local.windowOf(now);
+        assertThat(remote.snapshot(window, 2)).isEqualTo(Collections.singletonMap("john", 2L));
+        local.setRemote(window, remote.snapshot(window, 2));
+
+        assertThat(local.estimate("john", now)).isEqualTo(3);
+        assertThat(local.estimate("jane", now)).isZero();
+    }
+}
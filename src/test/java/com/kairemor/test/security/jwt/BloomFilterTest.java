@@ -0,0 +1,41 @@
+package com.kairemor.test.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedElementsAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(1000, 0.001);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("token-" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain("token-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    public void testFewAbsentElementsAreFound() {
+        BloomFilter filter = new BloomFilter(1000, 0.001);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("token-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(1000);
+    }
+
+    @Test
+    public void testEmptyFilterFindsNothing() {
+        assertThat(new BloomFilter(0, 0.001).mightContain("token")).isFalse();
+    }
+}
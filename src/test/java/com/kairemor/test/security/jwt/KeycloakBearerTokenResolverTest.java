@@ -0,0 +1,50 @@
+package com.kairemor.test.security.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeycloakBearerTokenResolverTest {
+
+    private final KeycloakBearerTokenResolver resolver = new KeycloakBearerTokenResolver();
+
+    @Test
+    public void testKeycloakTokenIsResolved() {
+        String token = token("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"key-1\"}");
+
+        assertThat(resolver.resolve(request("/api/users", token))).isEqualTo(token);
+    }
+
+    @Test
+    public void testHmacTokenIsLeftToJWTFilter() {
+        String token = token("{\"alg\":\"HS512\"}");
+
+        assertThat(resolver.resolve(request("/api/users", token))).isNull();
+    }
+
+    @Test
+    public void testNoTokenIsResolvedOnSignInAndRefresh() {
+        String token = token("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"key-1\"}");
+
+        assertThat(resolver.resolve(request("/api/signin", token))).isNull();
+        assertThat(resolver.resolve(request("/api/refresh-token", token))).isNull();
+        assertThat(resolver.resolve(request("/api/mobile/refresh-token", token))).isNull();
+    }
+
+    static String token(String header) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+            + encoder.encodeToString("{\"sub\":\"user\"}".getBytes(StandardCharsets.UTF_8)) + ".c2lnbmF0dXJl";
+    }
+
+    private static MockHttpServletRequest request(String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,82 @@
+package com.kairemor.test.security.jwt;
+
+import com.kairemor.test.properties.AccountServiceProperties;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KeycloakJwkSourceTest {
+
+    private static final String JWKS_URL = "http://localhost:9080/auth/realms/jhipster/protocol/openid-connect/certs";
+
+    private RestTemplate restTemplate;
+
+    private AccountServiceProperties accountServiceProperties;
+
+    private RSAKey firstKey;
+
+    private RSAKey secondKey;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        restTemplate = mock(RestTemplate.class);
+        accountServiceProperties = new AccountServiceProperties();
+        accountServiceProperties.setIssuerUrl("http://localhost:9080/auth/");
+        accountServiceProperties.setRealm("jhipster");
+        firstKey = new RSAKeyGenerator(2048).keyID("first").generate().toPublicJWK();
+        secondKey = new RSAKeyGenerator(2048).keyID("second").generate().toPublicJWK();
+        when(restTemplate.getForObject(JWKS_URL, String.class))
+            .thenReturn(new JWKSet(firstKey).toString(), new JWKSet(Arrays.<JWK>asList(firstKey, secondKey)).toString());
+    }
+
+    @Test
+    public void testUnknownKeyIdFetchesTheKeysAgain() throws Exception {
+        accountServiceProperties.setJwksMinRefetchMillis(0);
+        KeycloakJwkSource jwkSource = new KeycloakJwkSource(restTemplate, accountServiceProperties);
+
+        assertThat(keyIds(jwkSource.get(byKeyId("first"), null))).containsExactly("first");
+        assertThat(keyIds(jwkSource.get(byKeyId("first"), null))).containsExactly("first");
+        verify(restTemplate, times(1)).getForObject(JWKS_URL, String.class);
+
+        assertThat(keyIds(jwkSource.get(byKeyId("second"), null))).containsExactly("second");
+        verify(restTemplate, times(2)).getForObject(JWKS_URL, String.class);
+    }
+
+    @Test
+    public void testUnknownKeyIdIsNotFetchedAgainWithinTheMinimumInterval() throws Exception {
+        accountServiceProperties.setJwksMinRefetchMillis(60000);
+        KeycloakJwkSource jwkSource = new KeycloakJwkSource(restTemplate, accountServiceProperties);
+
+        assertThat(keyIds(jwkSource.get(byKeyId("first"), null))).containsExactly("first");
+        assertThat(jwkSource.get(byKeyId("second"), null)).isEmpty();
+        assertThat(jwkSource.get(byKeyId("unknown"), null)).isEmpty();
+        verify(restTemplate, times(1)).getForObject(JWKS_URL, String.class);
+
+        jwkSource.refresh();
+        assertThat(keyIds(jwkSource.get(byKeyId("second"), null))).containsExactly("second");
+        verify(restTemplate, times(2)).getForObject(JWKS_URL, String.class);
+    }
+
+    private static JWKSelector byKeyId(String keyId) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+    }
+
+    private static String[] keyIds(List<JWK> keys) {
+        return keys.stream().map(JWK::getKeyID).toArray(String[]::new);
+    }
+}
@@ -35,6 +35,7 @@ public class TokenProviderTest {
             .decode("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8"));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
+        ReflectionTestUtils.setField(tokenProvider, "jwtParser", Jwts.parserBuilder().setSigningKey(key).build());
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", ONE_MINUTE);
     }
 
@@ -83,6 +84,40 @@ public class TokenProviderTest {
         assertThat(isTokenValid).isEqualTo(false);
     }
 
+    @Test
+    public void testAuthenticateReturnsTheAuthenticationOfAValidToken() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        Optional<Authentication> authentication = tokenProvider.authenticate(token);
+
+        assertThat(authentication).isPresent();
+        assertThat(authentication.get().getName()).isEqualTo("anonymous");
+        assertThat(authentication.get().getCredentials()).isEqualTo(token);
+        assertThat(authentication.get().getAuthorities()).extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ANONYMOUS);
+    }
+
+    @Test
+    public void testAuthenticateReturnsEmptyWhenJWThasInvalidSignature() {
+        assertThat(tokenProvider.authenticate(createTokenWithDifferentSignature())).isEmpty();
+    }
+
+    @Test
+    public void testIsHmacSignedReadsTheAlgorithmOfTheHeader() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(TokenProvider.isHmacSigned(token)).isTrue();
+        assertThat(TokenProvider.isHmacSigned(KeycloakBearerTokenResolverTest.token("{\"alg\":\"RS256\",\"kid\":\"HS-key\"}"))).isFalse();
+        assertThat(TokenProvider.isHmacSigned(KeycloakBearerTokenResolverTest.token("{\"typ\":\"HS\"}"))).isFalse();
+    }
+
+    @Test
+    public void testIsHmacSignedReturnsFalseWhenJWTisMalformed() {
+        assertThat(TokenProvider.isHmacSigned("")).isFalse();
+        assertThat(TokenProvider.isHmacSigned("not-base64!.payload.signature")).isFalse();
+        assertThat(TokenProvider.isHmacSigned("bm90IGpzb24.payload.signature")).isFalse();
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
@@ -0,0 +1,83 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.kairemor.test.config.ApplicationProperties;
+import com.kairemor.test.service.dto.UserDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BulkUserImporterTest {
+
+    private ExecutorService executor;
+
+    private BulkUserImporter bulkUserImporter;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newFixedThreadPool(8);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getBulkImport().setConcurrency(3);
+        applicationProperties.getBulkImport().setBatchSize(4);
+        bulkUserImporter = new BulkUserImporter(executor, applicationProperties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsKeepTheOrderOfTheUsers() {
+        List<UserDTO> users = createUsers(10);
+
+        List<String> results = bulkUserImporter.importUsers(users, UserDTO::getEmail);
+
+        assertThat(results).containsExactly("user0@test.com", "user1@test.com", "user2@test.com", "user3@test.com",
+            "user4@test.com", "user5@test.com", "user6@test.com", "user7@test.com", "user8@test.com", "user9@test.com");
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        bulkUserImporter.importUsers(createUsers(20), user -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return user.getEmail();
+        });
+
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void testCreatorErrorIsPropagated() {
+        assertThatThrownBy(() -> bulkUserImporter.importUsers(createUsers(5), user -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+
+    private List<UserDTO> createUsers(int count) {
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UserDTO user = new UserDTO();
+            user.setEmail("user" + i + "@test.com");
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.kairemor.test.config.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.AccessTokenResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RefreshTokenCoalescerTest {
+
+    private IMap<String, String> responses;
+
+    private RefreshTokenCoalescer refreshTokenCoalescer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        responses = mock(IMap.class);
+        when(responses.tryLock(anyString(), anyLong(), any(), anyLong(), any())).thenReturn(true);
+        HazelcastInstance hazelcastInstance = mock(HazelcastInstance.class);
+        when(hazelcastInstance.<String, String>getMap(RefreshTokenCoalescer.REFRESH_RESPONSES_CACHE)).thenReturn(responses);
+        refreshTokenCoalescer = new RefreshTokenCoalescer(hazelcastInstance, new ObjectMapper(), new ApplicationProperties());
+    }
+
+    @Test
+    public void testConcurrentRefreshesMakeASingleExchange() throws Exception {
+        int callers = 8;
+        AtomicInteger exchanges = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(callers);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<AccessTokenResponse>> refreshes = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                refreshes.add(executor.submit(() -> {
+                    arrived.countDown();
+                    return refreshTokenCoalescer.refresh("web_app", "refresh-token", () -> {
+                        exchanges.incrementAndGet();
+                        await(arrived);
+                        // let the other callers join the exchange in flight
+                        sleep(200);
+                        return tokens("access-token");
+                    });
+                }));
+            }
+            for (Future<AccessTokenResponse> refresh : refreshes) {
+                assertThat(refresh.get(5, TimeUnit.SECONDS).getToken()).isEqualTo("access-token");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(exchanges.get()).isEqualTo(1);
+        verify(responses, times(1)).set(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    public void testFailedExchangeIsNotKept() {
+        AtomicInteger exchanges = new AtomicInteger();
+
+        assertThatThrownBy(() -> refreshTokenCoalescer.refresh("web_app", "refresh-token", () -> {
+            exchanges.incrementAndGet();
+            throw new IllegalStateException("Keycloak failed");
+        })).isInstanceOf(IllegalStateException.class);
+        verify(responses, never()).set(anyString(), anyString(), anyLong(), any());
+
+        AccessTokenResponse response = refreshTokenCoalescer.refresh("web_app", "refresh-token", () -> {
+            exchanges.incrementAndGet();
+            return tokens("access-token");
+        });
+
+        assertThat(response.getToken()).isEqualTo("access-token");
+        assertThat(exchanges.get()).isEqualTo(2);
+    }
+
+    private static AccessTokenResponse tokens(String accessToken) {
+        AccessTokenResponse response = new AccessTokenResponse();
+        response.setToken(accessToken);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kairemor.test.service.impl.keycloak;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenPermissionEvaluatorTest {
+
+    @Test
+    public void testPermissionIsTheRoleWithoutItsPrefix() {
+        Set<String> permissions = TokenPermissionEvaluator.toPermissions(Arrays.asList("APP_READ_USERS", "ADMIN", "uma_authorization"));
+
+        assertThat(permissions).containsExactlyInAnyOrder("read_users", "authorization");
+    }
+
+    @Test
+    public void testPermissionIsCaseInsensitive() {
+        Set<String> permissions = TokenPermissionEvaluator.toPermissions(Arrays.asList("APP_Read_Users"));
+
+        assertThat(TokenPermissionEvaluator.isGranted("READ_users", permissions)).isTrue();
+        assertThat(TokenPermissionEvaluator.isGranted("read", permissions)).isFalse();
+        assertThat(TokenPermissionEvaluator.isGranted(null, permissions)).isFalse();
+    }
+
+    @Test
+    public void testTrailingSeparatorsAreIgnored() {
+        Set<String> permissions = TokenPermissionEvaluator.toPermissions(Arrays.asList("APP_WRITE__", "APP_"));
+
+        assertThat(permissions).containsExactly("write");
+    }
+}
@@ -0,0 +1,53 @@
+package com.kairemor.test.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LruCacheTest {
+
+    @Test
+    public void testEvictsTheLeastRecentlyUsedEntryWhenFull() {
+        // a max size of 16 gives one entry per segment, keys 0 and 16 share a segment
+        LruCache<Integer, String> cache = new LruCache<>(16);
+        cache.put(0, "zero");
+        cache.put(16, "sixteen");
+
+        assertThat(cache.get(0)).isNull();
+        assertThat(cache.get(16)).isEqualTo("sixteen");
+    }
+
+    @Test
+    public void testKeepsAcceptingNewEntriesWhenFull() {
+        LruCache<Integer, Integer> cache = new LruCache<>(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+
+        assertThat(cache.size()).isEqualTo(64);
+        assertThat(cache.get(999)).isEqualTo(999);
+    }
+
+    @Test
+    public void testRemovesOnlyMatchingEntries() {
+        LruCache<String, Integer> cache = new LruCache<>(100);
+        cache.put("one", 1);
+        cache.put("two", 2);
+
+        cache.remove("one", value -> value == 2);
+        cache.removeIf(value -> value == 2);
+
+        assertThat(cache.get("one")).isEqualTo(1);
+        assertThat(cache.get("two")).isNull();
+    }
+
+    @Test
+    public void testMaxSizeOfZeroDisablesTheCache() {
+        LruCache<String, Integer> cache = new LruCache<>(0);
+        cache.put("one", 1);
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get("one")).isNull();
+        assertThat(cache.computeIfAbsent("two", key -> 2)).isEqualTo(2);
+    }
+}
@@ -34,6 +34,22 @@ public class ExceptionTranslatorIT {
             .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_CONCURRENCY_FAILURE));
     }
 
+    @Test
+    public void testKeycloakUnavailable() throws Exception {
+        mockMvc.perform(get("/api/exception-translator-test/keycloak-unavailable"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_KEYCLOAK_UNAVAILABLE));
+    }
+
+    @Test
+    public void testTooManyLoginAttempts() throws Exception {
+        mockMvc.perform(get("/api/exception-translator-test/too-many-login-attempts"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_TOO_MANY_LOGIN_ATTEMPTS));
+    }
+
     @Test
     public void testMethodArgumentNotValid() throws Exception {
          mockMvc.perform(post("/api/exception-translator-test/method-argument").content("{}").contentType(MediaType.APPLICATION_JSON))
@@ -1,5 +1,7 @@
 package com.kairemor.test.web.rest.errors;
 
+import com.kairemor.test.exception.KeycloakUnavailableException;
+import com.kairemor.test.exception.TooManyLoginAttemptsException;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -18,6 +20,16 @@ public class ExceptionTranslatorTestController {
         throw new ConcurrencyFailureException("test concurrency failure");
     }
 
+    @GetMapping("/keycloak-unavailable")
+    public void keycloakUnavailable() {
+        throw new KeycloakUnavailableException("test keycloak unavailable");
+    }
+
+    @GetMapping("/too-many-login-attempts")
+    public void tooManyLoginAttempts() {
+        throw new TooManyLoginAttemptsException("test too many login attempts");
+    }
+
     @PostMapping("/method-argument")
     public void methodArgument(@Valid @RequestBody TestDTO testDTO) {
     }
@@ -0,0 +1,39 @@
+package com.kairemor.test.web.rest.util;
+
+import com.kairemor.test.config.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientIpResolverTest {
+
+    private final ClientIpResolver clientIpResolver = new ClientIpResolver(new ApplicationProperties());
+
+    @Test
+    public void testForwardedAddressIsReadBehindTrustedProxy() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.5");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.4");
+
+        assertThat(clientIpResolver.resolve(request)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    public void testForgedAddressesBeforeTheClientAreIgnored() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.5");
+        request.addHeader("X-Forwarded-For", "1.2.3.4, 203.0.113.7");
+
+        assertThat(clientIpResolver.resolve(request)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    public void testForwardedAddressIsIgnoredFromUntrustedClient() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-Forwarded-For", "1.2.3.4");
+
+        assertThat(clientIpResolver.resolve(request)).isEqualTo("203.0.113.7");
+    }
+}